@@ -0,0 +1,113 @@
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * ActiveRenderer draws frames on its own thread straight into a Canvas's BufferStrategy,
+ * instead of asking Swing to repaint and waiting for the event thread to get round to
+ * it. With pacing on, frames are spaced evenly at the target rate, like vsync; when the
+ * renderer falls more than a frame behind it skips the missed frames rather than drawing
+ * them back to back. With pacing off it draws as fast as it can.
+ */
+public class ActiveRenderer implements Runnable {
+    private final Canvas canvas;
+    private final int buffers;
+    private final long period;      // Nanoseconds per frame
+    private final boolean paced;
+    private final Consumer<Graphics> painter;
+    private final Profiler profiler;
+
+    private volatile boolean running;
+    private volatile long skipped;
+    private Thread thread;
+
+    /**
+     * Creates a renderer for a canvas. The canvas must be showing before start() is called.
+     *
+     * @param canvas    surface to draw on
+     * @param buffers   number of buffers to flip between, 2 or 3
+     * @param frameRate frames per second to aim for when paced
+     * @param paced     true to space frames evenly, false to draw as fast as possible
+     * @param painter   draws one frame with the graphics it is given
+     * @param profiler  records how long presenting and whole frames take
+     */
+    public ActiveRenderer(Canvas canvas, int buffers, int frameRate, boolean paced, Consumer<Graphics> painter,
+                          Profiler profiler) {
+        this.canvas = canvas;
+        this.buffers = buffers;
+        this.period = 1_000_000_000L / frameRate;
+        this.paced = paced;
+        this.painter = painter;
+        this.profiler = profiler;
+    }
+
+    /**
+     * Starts the render thread.
+     */
+    public void start() {
+        canvas.setIgnoreRepaint(true);
+        canvas.createBufferStrategy(buffers);
+        running = true;
+        thread = new Thread(this, "renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread after its current frame.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * @return how many frames have been skipped to catch up since the renderer started
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        long deadline = System.nanoTime();
+        while (running) {
+            if (paced) {
+                long now = System.nanoTime();
+                if (now - deadline > period) {
+                    // More than a whole frame late: drop the frames we missed
+                    skipped += (now - deadline) / period;
+                    deadline = now;
+                } else if (deadline > now) {
+                    LockSupport.parkNanos(deadline - now);
+                    continue;
+                }
+                deadline += period;
+            }
+
+            long frame = profiler.start();
+            long present = 0;
+            do {
+                do {
+                    Graphics graphics = strategy.getDrawGraphics();
+                    try {
+                        painter.accept(graphics);
+                    } finally {
+                        graphics.dispose();
+                    }
+                } while (strategy.contentsRestored() && running);
+                present = profiler.start();
+                strategy.show();
+            } while (strategy.contentsLost() && running);
+            Toolkit.getDefaultToolkit().sync();
+            profiler.stop(Profiler.Phase.PRESENT, present);
+            profiler.stop(Profiler.Phase.FRAME, frame);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Affine is a mutable 2x3 transform: a rotation followed by a translation, mapping a
+ * point (x, y) to (m00 x + m01 y + m02, m10 x + m11 y + m12). Only the rotation needs
+ * trigonometry, and it is only redone when the angle actually changes, so an object that
+ * moves without turning can be re-placed every tick without calling sin or cos.
+ */
+public final class Affine {
+    private double m00 = 1, m01, m02;
+    private double m10, m11 = 1, m12;
+    private double degrees;
+
+    /**
+     * Sets the transform to rotate about the origin and then move by (tx, ty).
+     *
+     * @param degrees rotation, clockwise from due east
+     * @param tx      x distance to move
+     * @param ty      y distance to move
+     * @return this transform
+     */
+    public Affine set(double degrees, double tx, double ty) {
+        if (degrees != this.degrees) {
+            double cos = Trig.cos(degrees);
+            double sin = Trig.sin(degrees);
+            m00 = cos;
+            m01 = -sin;
+            m10 = sin;
+            m11 = cos;
+            this.degrees = degrees;
+        }
+        m02 = tx;
+        m12 = ty;
+        return this;
+    }
+
+    /**
+     * @return x coordinate of (x, y) after the transform
+     */
+    public double transformX(double x, double y) {
+        return m00 * x + m01 * y + m02;
+    }
+
+    /**
+     * @return y coordinate of (x, y) after the transform
+     */
+    public double transformY(double x, double y) {
+        return m10 * x + m11 * y + m12;
+    }
+}
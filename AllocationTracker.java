@@ -0,0 +1,203 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.Timespan;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * AllocationTracker measures how many bytes each phase of a tick or frame allocates,
+ * using the JVM's per-thread allocation counter. It is used like the Profiler:
+ * <pre>
+ *     long a = allocations.mark();
+ *     ...
+ *     a = allocations.record(Profiler.Phase.UPDATE, a);
+ * </pre>
+ * While a Flight Recorder recording is running it also emits custom JFR events: one
+ * per recorded phase with the bytes it allocated, one per drawn frame, and one per
+ * garbage collection with its pause time. No event objects are created otherwise, so
+ * tracking itself doesn't add to the numbers it reports.
+ */
+public class AllocationTracker {
+    // A tracker that records nothing
+    public static final AllocationTracker OFF = new AllocationTracker(false);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Whether a JFR recording is running, so events are worth creating
+    private static volatile boolean recording;
+
+    static {
+        if (FlightRecorder.isAvailable()) {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording changed) {
+                    recording = anyRecordingRunning();
+                }
+            });
+            recording = anyRecordingRunning();
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (recording && GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        GcPauseEvent event = new GcPauseEvent();
+                        event.collector = info.getGcName();
+                        event.action = info.getGcAction();
+                        event.cause = info.getGcCause();
+                        event.pause = info.getGcInfo().getDuration() * 1_000_000L;
+                        event.commit();
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    private static boolean anyRecordingRunning() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .anyMatch(r -> r.getState() == RecordingState.RUNNING);
+    }
+
+    private final boolean enabled;
+    private final long[] bytes = new long[Profiler.Phase.values().length];
+    private final long[] samples = new long[Profiler.Phase.values().length];
+    private final long[] max = new long[Profiler.Phase.values().length];
+
+    /**
+     * Creates an enabled tracker.
+     */
+    public AllocationTracker() {
+        this(true);
+    }
+
+    private AllocationTracker(boolean enabled) {
+        this.enabled = enabled && THREADS.isThreadAllocatedMemorySupported();
+        if (this.enabled) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * @return the number of bytes this thread has allocated so far, or 0 if disabled
+     */
+    public long mark() {
+        return enabled ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Records the bytes a phase allocated on this thread since mark.
+     *
+     * @param phase the phase that just finished
+     * @param mark  the count when the phase started, from mark() or a previous record()
+     * @return the count now, which is where the next phase starts
+     */
+    public long record(Profiler.Phase phase, long mark) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = mark();
+        long allocated = now - mark;
+        int i = phase.ordinal();
+        bytes[i] += allocated;
+        samples[i]++;
+        max[i] = Math.max(max[i], allocated);
+        if (recording) {
+            PhaseAllocationEvent event = new PhaseAllocationEvent();
+            event.phase = phase.name();
+            event.allocated = allocated;
+            event.commit();
+        }
+        return now;
+    }
+
+    /**
+     * Emits a JFR event for a drawn frame, if a recording is running.
+     *
+     * @param start     System.nanoTime() when the frame started
+     * @param allocated bytes allocated drawing it
+     */
+    public void frame(long start, long allocated) {
+        if (recording) {
+            FrameEvent event = new FrameEvent();
+            event.frameTime = System.nanoTime() - start;
+            event.allocated = allocated;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return average bytes allocated per recorded run of the phase
+     */
+    public double getMean(Profiler.Phase phase) {
+        int i = phase.ordinal();
+        return samples[i] == 0 ? 0 : (double) bytes[i] / samples[i];
+    }
+
+    /**
+     * @return the most bytes allocated by a single run of the phase
+     */
+    public long getMax(Profiler.Phase phase) {
+        return max[phase.ordinal()];
+    }
+
+    /**
+     * Forgets everything recorded so far, typically once the game has warmed up.
+     */
+    public void reset() {
+        Arrays.fill(bytes, 0);
+        Arrays.fill(samples, 0);
+        Arrays.fill(max, 0);
+    }
+
+    @Name("asteroids.PhaseAllocation")
+    @Label("Phase Allocation")
+    @Category("Asteroids")
+    static class PhaseAllocationEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("asteroids.Frame")
+    @Label("Frame")
+    @Category("Asteroids")
+    static class FrameEvent extends Event {
+        @Label("Frame Time")
+        @Timespan
+        long frameTime;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("asteroids.GcPause")
+    @Label("GC Pause")
+    @Category("Asteroids")
+    static class GcPauseEvent extends Event {
+        @Label("Collector")
+        String collector;
+        @Label("Action")
+        String action;
+        @Label("Cause")
+        String cause;
+        @Label("Pause")
+        @Timespan
+        long pause;
+    }
+}
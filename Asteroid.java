@@ -2,6 +2,10 @@ import java.awt.*;
 import java.awt.geom.Point2D;
 
 public class Asteroid extends Polygon{
+    // Top speed an asteroid may drift in a tick
+    public static final double MAX_SPEED = 2;
+    // Colors an asteroid is drawn in
+    public static final Color OUTLINE = Color.white, FILL = Color.black;
 
     /**
      * Creates a polygon with the specified shape, position, and rotation.
@@ -13,30 +17,70 @@ public class Asteroid extends Polygon{
         super(shape, position, rotation);
     }
 
+    /**
+     * Creates an asteroid sharing a template from the shape catalog.
+     *
+     * @param template shape of the asteroid
+     * @param position location of the center point of the polygon
+     * @param rotation orientation of the polygon
+     */
+    public Asteroid(ShapeTemplate template, Point2D.Double position, double rotation) {
+        super(template, position, rotation);
+    }
+
     public void accelerate (double acceleration) {
         position.x += acceleration * Math.cos(Math.toRadians(rotation));
         position.y += acceleration * Math.sin(Math.toRadians(rotation));
     }
 
-    @Override
-    public void update() {
-        accelerate((Math.random()*2));
-        if(position.x > 800){
-            position.x = 0;
-        } else if (position.x < 0) {
-            position.x = 800;
+    /**
+     * Advances the asteroids from index from up to (not including) to by one tick, each
+     * a random distance, up to MAX_SPEED, along its heading. Each asteroid's speed depends only
+     * on the tick's seed and its index, not on which other asteroids were updated first, so
+     * separate ranges can be updated on separate threads and give the same result.
+     * The owners' world geometry is refreshed as well, ready for the broad phase.
+     *
+     * @param asteroids store holding the asteroids, owned by Asteroid objects
+     * @param seed      this tick's seed for the random speeds
+     * @param width     width of the world
+     * @param height    height of the world
+     * @param from      first asteroid to update
+     * @param to        one past the last asteroid to update
+     */
+    public static void update(EntityStore asteroids, long seed, double width, double height, int from, int to) {
+        double[] vx = asteroids.vx, vy = asteroids.vy, dx = asteroids.dx, dy = asteroids.dy;
+        for (int i = from; i < to; i++) {
+            double speed = speed(seed, i);
+            vx[i] = speed * dx[i];
+            vy[i] = speed * dy[i];
+        }
+        double[] x = asteroids.x, y = asteroids.y;
+        for (int i = from; i < to; i++) {
+            x[i] += vx[i];
+            y[i] += vy[i];
         }
-        if (position.y > 600){
-            position.y = 0;
-        } else if (position.y < 0) {
-            position.y = 600;
+        asteroids.wrap(width, height, from, to);
+
+        for (int i = from; i < to; i++) {
+            Asteroid asteroid = asteroids.owner(i);
+            asteroid.savePrevious();
+            asteroid.position.setLocation(x[i], y[i]);
+            asteroid.getBounds();
         }
     }
 
+    /*
+     * A random speed between 0 and MAX_SPEED for asteroid i, mixed from the seed and
+     * the index.
+     */
+    private static double speed(long seed, int i) {
+        return (World.mix(seed, i) >>> 11) * 0x1.0p-53 * MAX_SPEED;
+    }
+
     @Override
     public void paint(Graphics brush) {
-        outline(brush,Color.white);
-        fill(brush,Color.black);
+        outline(brush,OUTLINE);
+        fill(brush,FILL);
     }
 }
 
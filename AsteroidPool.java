@@ -0,0 +1,101 @@
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * AsteroidPool keeps Asteroid objects that are no longer in play so new ones, such as
+ * the fragments of a split asteroid, can reuse them instead of being allocated. An
+ * Asteroid is tied to its outline for life, so there is one free list per template of
+ * the catalog. reserve() fills a list up front, so a burst of splits later on doesn't
+ * allocate at all.
+ */
+public class AsteroidPool {
+    private final ShapeCatalog catalog;
+    private final double width, height;  // Size of the world the asteroids are made for
+    private final Asteroid[][] free;   // Free asteroids, by template id
+    private final int[] count;
+
+    /**
+     * Creates an empty pool for the templates of a catalog, for a world of the usual size.
+     *
+     * @param catalog catalog every pooled asteroid's template comes from
+     */
+    public AsteroidPool(ShapeCatalog catalog) {
+        this(catalog, World.WIDTH, World.HEIGHT);
+    }
+
+    /**
+     * Creates an empty pool for the templates of a catalog.
+     *
+     * @param catalog catalog every pooled asteroid's template comes from
+     * @param width   width of the world the asteroids wrap around in
+     * @param height  height of the world
+     */
+    public AsteroidPool(ShapeCatalog catalog, double width, double height) {
+        this.catalog = catalog;
+        this.width = width;
+        this.height = height;
+        int templates = ShapeCatalog.Size.values().length * catalog.getVariants();
+        free = new Asteroid[templates][8];
+        count = new int[templates];
+    }
+
+    /**
+     * Hands out an asteroid, reusing a free one with the same outline if there is one.
+     *
+     * @param template shape of the asteroid, from the pool's catalog
+     * @param x        x coordinate of the position
+     * @param y        y coordinate of the position
+     * @param rotation orientation, which is also the asteroid's heading
+     * @return an asteroid at rest in the given place
+     */
+    public Asteroid take(ShapeTemplate template, double x, double y, double rotation) {
+        int id = catalog.id(template);
+        if (count[id] == 0) {
+            Asteroid asteroid = new Asteroid(template, new Point2D.Double(x, y), rotation);
+            asteroid.setWorldSize(width, height);
+            return asteroid;
+        }
+        Asteroid asteroid = free[id][--count[id]];
+        free[id][count[id]] = null;
+        asteroid.restore(x, y, rotation, x, y, rotation);
+        return asteroid;
+    }
+
+    /**
+     * Gives back an asteroid that has left play.
+     *
+     * @param asteroid asteroid with a template from the pool's catalog, or null to do nothing
+     */
+    public void release(Asteroid asteroid) {
+        if (asteroid == null) {
+            return;
+        }
+        int id = catalog.id(asteroid.getTemplate());
+        if (count[id] == free[id].length) {
+            free[id] = Arrays.copyOf(free[id], count[id] * 2);
+        }
+        free[id][count[id]++] = asteroid;
+    }
+
+    /**
+     * Makes sure at least n asteroids of a template are free.
+     *
+     * @param template shape of the asteroids, from the pool's catalog
+     * @param n        number that must be ready to take
+     */
+    public void reserve(ShapeTemplate template, int n) {
+        int id = catalog.id(template);
+        while (count[id] < n) {
+            Asteroid asteroid = new Asteroid(template, new Point2D.Double(), 0);
+            asteroid.setWorldSize(width, height);
+            release(asteroid);
+        }
+    }
+
+    /**
+     * @return how many asteroids of a template are free
+     */
+    public int available(ShapeTemplate template) {
+        return count[catalog.id(template)];
+    }
+}
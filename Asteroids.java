@@ -1,34 +1,113 @@
 import java.awt.RenderingHints;
+import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.Stroke;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
- * Asteroids is a subclass of Game in which all the important work is in the paint method.
+ * Asteroids is a subclass of Game that puts a World on screen. The world advances in tick() on its own
+ * thread at GameLoop.TICK_RATE, while paintComponent only draws, blending between the last two ticks.
+ * The world, the window and the frame rendered are each sized on their own, see View.
  * NOTE: This class is the metaphorical "main method" of your program; it is your control center.
  */
 public class Asteroids extends Game implements KeyListener {
 
-   public static int WIDTH = 800;
-   public static int HEIGHT = 600;
-   private boolean initialized = false;
+   // Size of the window to start with, -Dasteroids.window=1280x720; it can be resized while playing
+   public static int WIDTH = dimension("asteroids.window", 0, World.WIDTH);
+   public static int HEIGHT = dimension("asteroids.window", 1, World.HEIGHT);
+   // Size of the world, -Dasteroids.world=1600x1200; however big, it is fitted into the window
+   public static final int WORLD_WIDTH = dimension("asteroids.world", 0, World.WIDTH);
+   public static final int WORLD_HEIGHT = dimension("asteroids.world", 1, World.HEIGHT);
+   // Pixels rendered per window pixel, -Dasteroids.scale=0.5 to 2; below 1 trades sharpness for speed
+   public static final double SCALE = Math.max(0.5, Math.min(2,
+           Double.parseDouble(System.getProperty("asteroids.scale", "1"))));
+   // Whether frames are rendered into the buffer and then copied to the window
+   private static final boolean OFFSCREEN = DIRTY || SCALE != 1;
+   // How the frame is stretched to the window, -Dasteroids.smooth=true or false. Smoothing is the
+   // point of rendering sharper than the window, but done in software it can cost more than
+   // rendering coarser saves, so by default only a frame bigger than the window is smoothed
+   private static final Object STRETCH = Boolean.parseBoolean(System.getProperty("asteroids.smooth",
+           String.valueOf(SCALE > 1))) ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+           : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+   private volatile boolean initialized = false;
+
+   // Guards the world, which is shared by the simulation thread and the painter
+   private final Object lock = new Object();
+   private GameLoop loop;
+   private World world;
 
-   private Ship ship;
-   private List<Asteroid> asteroids = new ArrayList<Asteroid>();
-   private List<Bullet> bullets = new ArrayList<Bullet>();
    private List<Star> stars = new ArrayList<Star>();
-   private boolean left;
-   private boolean right;
+   private Compositor compositor;
+   private View view;
+   private Graphics2D bufferGraphics;
+   // Key events on their way from the event dispatch thread to the simulation thread
+   private final InputQueue events = new InputQueue(256);
+   // Shots per second, -Dasteroids.fireRate=..., and whether holding fire keeps firing, -Dasteroids.autofire=true
+   private static final int FIRE_RATE = Integer.getInteger("asteroids.fireRate", GameLoop.TICK_RATE);
+   private static final boolean AUTOFIRE = Boolean.getBoolean("asteroids.autofire");
+   private final PlayerInput input = new PlayerInput(events,
+           Math.round((float) GameLoop.TICK_RATE / Math.max(1, FIRE_RATE)), AUTOFIRE);
+
+   // Where to record the game's input for Replay, -Dasteroids.record=game.bin
+   private static final String RECORD = System.getProperty("asteroids.record");
+   private InputRecorder recorder;
+
+   // Server to play on instead of a local world, -Dasteroids.connect=host:port
+   private static final String CONNECT = System.getProperty("asteroids.connect");
+   private static final long CONNECT_TIMEOUT = 5000;
+   private Client client;
+
+   // The last few seconds of play, one snapshot per tick; R rewinds, also after a game over
+   private static final int REWIND_LENGTH = 5 * GameLoop.TICK_RATE;
+   private static final int REWIND_STEP = 2 * GameLoop.TICK_RATE;
+   private final SnapshotRing history = new SnapshotRing(REWIND_LENGTH, 4096);
+
+   // Where to write the frame-time histograms on exit, -Dasteroids.profile=frame-times.csv or .json
+   private static final String PROFILE = System.getProperty("asteroids.profile");
+   // How often the timing overlay's numbers are refreshed
+   private static final long OVERLAY_REFRESH = 500_000_000L;
+   private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+   private static final int OVERLAY_WIDTH = 360;
+   private volatile boolean overlay;
+   private String[] overlayLines = new String[0];
+   private long overlayUpdated;
+
+   // Draws the entities batched by color, -Dasteroids.batched=false draws them one by one instead
+   private static final boolean BATCHED = !"false".equals(System.getProperty("asteroids.batched"));
+   private final RenderQueue queue = new RenderQueue();
+   private final int shipPaint = queue.state(Ship.OUTLINE, Ship.FILL, 0);
+   private final int bulletPaint = queue.state(Bullet.OUTLINE, Bullet.FILL, 1);
+   private final int asteroidPaint = queue.state(Asteroid.OUTLINE, Asteroid.FILL, 2);
+
+   // Debris and exhaust, at most -Dasteroids.particles=... of them at once
+   private static final int PARTICLES = Integer.getInteger("asteroids.particles", 4096);
+   private Particles particles;
 
-   private boolean fired;
+   // With -Dasteroids.render=dirty, where things were drawn last frame and are drawn this one,
+   // and the regions of the buffer that this frame repaints
+   private static final int DAMAGE_REGIONS = 16;
+   private static final double FULL_REPAINT = 0.6;
+   private DamageRegions shown, showing, damage;
+   private final Rectangle area = new Rectangle();
+   private final Rectangle worldRegion = new Rectangle();
+   private boolean shownGameOver;
+   private int shownScore = -1;
+   private boolean overlayShown;
 
-   private int score = 0;
-   private boolean gameOver = false;
    // Magic code to make the rendering look better
    private static final RenderingHints HINTS;
    static {
@@ -38,41 +117,156 @@ public class Asteroids extends Game implements KeyListener {
       HINTS.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
    }
 
-   public Asteroids() {
+   public Asteroids(long seed) {
       super("Asteroids!",WIDTH,HEIGHT);
-      addKeyListener(this);
+      getSurface().addKeyListener(this);
 
-
-      // Add any necessary initialization
-
-      //Making Ship
-      ship = new Ship(new Point2D.Double(400,300),0);
-
-      //Making asteroids
-      for (int i = 0; i < 15; i++) {
-         Point2D.Double[] shape = new Point2D.Double[]{new Point2D.Double(540, 65),new Point2D.Double(585, 80),new Point2D.Double(600, 40),
-                 new Point2D.Double(530, 50),new Point2D.Double(520, 68),new Point2D.Double(540, 65)};
-         int ranx = (int) (Math.random() * WIDTH);
-         int rany = (int) (Math.random() * height);
-
-         asteroids.add(new Asteroid(shape,new Point2D.Double(ranx, rany),Math.random()*360));
+      if (CONNECT != null) {
+         int colon = CONNECT.lastIndexOf(':');
+         try {
+            client = Client.connect(new UdpTransport(new InetSocketAddress(0)),
+                    new InetSocketAddress(CONNECT.substring(0, colon), Integer.parseInt(CONNECT.substring(colon + 1))),
+                    CONNECT_TIMEOUT);
+         } catch (IOException e) {
+            throw new IllegalStateException("Could not join " + CONNECT, e);
+         }
+         world = client.getWorld();
+      } else {
+         world = new World(seed, World.ASTEROIDS, World.MAX_BULLETS, 1, WORLD_WIDTH, WORLD_HEIGHT);
+      }
+      world.setProfiler(profiler);
+      world.setAllocationTracker(allocations);
+      if (RECORD != null && client == null && (world.getWidth() != World.WIDTH || world.getHeight() != World.HEIGHT)) {
+         //Replay plays logs back in a world of the usual size, where this game would go differently
+         System.err.println("Not recording to " + RECORD + ": only games in a world of the usual size can be replayed");
+      } else if (RECORD != null && client == null) {
+         try {
+            recorder = new InputRecorder(Paths.get(RECORD), seed, World.ASTEROIDS);
+         } catch (IOException e) {
+            System.err.println("Could not record to " + RECORD + ": " + e);
+         }
       }
 
-      //This makes stars at random locations
-      for (int i = 0; i < 100; i++) {
-         int ranx = (int) (Math.random() * WIDTH);
-         int rany = (int) (Math.random() * height);
-         int randDiam = (int) (Math.random() * 5);
+      //This makes stars at random locations, as many to the pixel however big the world
+      Random random = new Random(seed);
+      long starCount = 100L * world.getWidth() * world.getHeight() / (World.WIDTH * World.HEIGHT);
+      for (int i = 0; i < starCount; i++) {
+         int ranx = random.nextInt(world.getWidth());
+         int rany = random.nextInt(world.getHeight());
+         int randDiam = random.nextInt(5);
          stars.add(new Star(new Point2D.Double(ranx, rany), randDiam));
       }
 
+      view = new View(width, height, SCALE, world.getWidth(), world.getHeight());
+      compositor = new Compositor(stars, view, HINTS);
+      particles = new Particles(PARTICLES, view.getWidth(), view.getHeight(), seed);
+      shown = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+      showing = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+      damage = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+
+      input.bind(KeyEvent.VK_W, World.THRUST);
+      input.bind(KeyEvent.VK_A, World.LEFT);
+      input.bind(KeyEvent.VK_D, World.RIGHT);
+      input.bind(KeyEvent.VK_SPACE, World.FIRE);
+      loop = new GameLoop(GameLoop.TICK_RATE, GameLoop.MAX_CATCH_UP, this::tick);
+      loop.start();
+
       // Make sure this line is last in the constructor
       initialized = true;
-      fired = false;
    }
 
    public static void main (String[] args) {
-      new Asteroids();
+      new Asteroids(args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime());
+   }
+
+   /*
+    * One side of a size given as a system property like 1280x720, or the default if the
+    * property isn't set or isn't a size.
+    */
+   private static int dimension(String property, int side, int otherwise) {
+      String[] sides = System.getProperty(property, "").split("x");
+      try {
+         return sides.length == 2 ? Math.max(1, Integer.parseInt(sides[side].trim())) : otherwise;
+      } catch (NumberFormatException e) {
+         return otherwise;
+      }
+   }
+
+   /**
+    * Advances the game by one fixed step. Runs on the simulation thread.
+    */
+   private void tick() {
+      long t = profiler.start();
+      int controls = input.tick(loop.getTickTime());
+      profiler.stop(Profiler.Phase.INPUT, t);
+      synchronized (lock) {
+         if (client != null) {
+            try {
+               client.tick(controls);
+            } catch (IOException e) {
+               System.err.println("Lost the server: " + e);
+            }
+            updateParticles();
+            return;
+         }
+         world.tick(controls);
+         updateParticles();
+         if (!world.isGameOver()) {
+            history.push(world);
+         }
+         if (recorder != null) {
+            try {
+               recorder.record(controls);
+            } catch (IOException e) {
+               System.err.println("Stopped recording: " + e);
+               recorder = null;
+            }
+         }
+      }
+   }
+
+   /**
+    * Moves the particles on a tick and adds this tick's debris and exhaust.
+    */
+   private void updateParticles() {
+      particles.update();
+      for (int i = 0; i < world.getHits(); i++) {
+         particles.burst(world.getHitX(i), world.getHitY(i), world.getHitRadius(i));
+      }
+      for (int p = 0; p < world.getPlayers(); p++) {
+         if (world.isAlive(p) && world.getShip(p).isThrusting()) {
+            particles.exhaust(world.getShip(p));
+         }
+      }
+   }
+
+   @Override
+   protected void stop() {
+      loop.stop();
+      synchronized (lock) {
+         if (recorder != null) {
+            try {
+               recorder.close(world.hash());
+            } catch (IOException e) {
+               System.err.println("Could not finish " + RECORD + ": " + e);
+            }
+            recorder = null;
+         }
+         if (client != null) {
+            try {
+               client.close();
+            } catch (IOException e) {
+               System.err.println("Could not leave " + CONNECT + ": " + e);
+            }
+         }
+      }
+      if (PROFILE != null) {
+         try {
+            profiler.write(Paths.get(PROFILE));
+         } catch (IOException e) {
+            System.err.println("Could not write " + PROFILE + ": " + e);
+         }
+      }
    }
 
    @Override
@@ -80,101 +274,341 @@ public class Asteroids extends Game implements KeyListener {
       if (brush instanceof Graphics2D) {
          Graphics2D graphics = (Graphics2D) brush;
          graphics.addRenderingHints(HINTS);
+         graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, STRETCH);
       }
 
-      //Its game over when ship hits an asteroid
-      if (!gameOver) {
-         // Only draw after initialization
-         if (initialized) {
-            // Paints background black
-            brush.setColor(Color.black);
-            brush.fillRect(0, 0, width, height);
+      // Only draw after initialization
+      if (!initialized) {
+         return;
+      }
 
-            //Displays the Score
-            brush.setColor(Color.white);
-            brush.drawString("Score " + score, 10, 20);
+      if (DIRTY) {
+         // The buffer is brought up to date in repaintFrame(); all that is left is to show it
+         if (bufferGraphics == null) {
+            paintDamage(true);
+         }
+         brush.drawImage(buffer, 0, 0, width, height, null);
+         return;
+      }
 
-            //Paints ship on canvas
-            ship.paint(brush);
+      long t = profiler.start();
+      long a = allocations.mark();
+      fitView();
+      Graphics2D graphics = OFFSCREEN ? bufferGraphics() : (Graphics2D) brush;
+      synchronized (lock) {
+         if (!world.isGameOver()) {
+            // Blend between the last two ticks so motion stays smooth above the tick rate
+            double alpha = loop.getAlpha();
+            particles.plot(alpha, view.getWorldScale(), view.getX(), view.getY());
+            paintScene(graphics, alpha, null);
+         } else {
+            paintGameOver(graphics);
+         }
+      }
+      if (OFFSCREEN) {
+         // Stretches or shrinks the frame to the window
+         brush.drawImage(buffer, 0, 0, width, height, null);
+      }
+      profiler.stop(Profiler.Phase.RENDER, t);
+      allocations.frame(t, allocations.record(Profiler.Phase.RENDER, a) - a);
+      if (!ACTIVE) {
+         // Swing shows the frame itself once this returns, so painting is the whole frame
+         profiler.stop(Profiler.Phase.FRAME, t);
+      }
+   }
 
-            //updates ship to change position depending on how the ship is being interacted with.
-            ship.update();
+   @Override
+   protected void repaintFrame() {
+      if (!DIRTY || !initialized) {
+         repaint();
+         return;
+      }
+      paintDamage(bufferGraphics == null);
+      for (int i = 0; i < damage.size(); i++) {
+         view.screenToWindow(damage.get(i), area);
+         repaint(area.x, area.y, area.width, area.height);
+      }
+   }
 
-            //Changes the ships rotation to the left
-            if (left) {
-               ship.rotate(-5);
-            }
-            //Changes the ships rotation to the right
-            if (right) {
-               ship.rotate(5);
-            }
+   /*
+    * Makes a new view if the window has been resized since the last frame, and starts
+    * everything sized to the frame over at the new size.
+    *
+    * @return true if the view changed, so the whole frame needs painting
+    */
+   private boolean fitView() {
+      Component surface = getSurface();
+      int w = surface.getWidth(), h = surface.getHeight();
+      if (w <= 0 || h <= 0 || w == width && h == height) {
+         return false;
+      }
+      width = w;
+      height = h;
+      view = new View(w, h, SCALE, world.getWidth(), world.getHeight());
+      compositor.setView(view);
+      particles.resize(view.getWidth(), view.getHeight());
+      shown = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+      showing = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+      damage = new DamageRegions(view.getWidth(), view.getHeight(), DAMAGE_REGIONS);
+      return true;
+   }
+
+   /*
+    * Graphics for drawing into the buffer, which is made to the size of the view.
+    */
+   private Graphics2D bufferGraphics() {
+      if (bufferGraphics == null || buffer.getWidth(null) != view.getWidth()
+              || buffer.getHeight(null) != view.getHeight()) {
+         if (bufferGraphics != null) {
+            bufferGraphics.dispose();
+         }
+         buffer = getSurface().createImage(view.getWidth(), view.getHeight());
+         bufferGraphics = (Graphics2D) buffer.getGraphics();
+         bufferGraphics.addRenderingHints(HINTS);
+      }
+      return bufferGraphics;
+   }
 
-            //Bullet maker
-            for (int i = 0; i < bullets.size(); i++) {
-               Bullet bullet = bullets.get(i);
-               bullet.paint(brush);
-               bullet.update();
+   /**
+    * Works out what has changed since the last frame and repaints just that into the
+    * buffer. Every entity is repainted where it was drawn last frame and where it is
+    * drawn now; the rest of the buffer still holds the right picture. Runs on the event
+    * thread, so the buffer is only ever touched there.
+    *
+    * @param everything true to repaint the whole buffer, as for the first frame
+    */
+   private void paintDamage(boolean everything) {
+      long t = profiler.start();
+      long a = allocations.mark();
+      everything |= fitView();
+      Graphics2D graphics = bufferGraphics();
+      synchronized (lock) {
+         double alpha = loop.getAlpha();
+         damage.clear();
+         if (everything) {
+            damage.addScreen();
+         }
+         boolean over = world.isGameOver();
+         if (over != shownGameOver) {
+            damage.addScreen();
+            shownGameOver = over;
+         }
+         if (!over) {
+            findDamage(alpha);
+         }
+         for (int i = 0; i < damage.size(); i++) {
+            Rectangle region = damage.get(i);
+            graphics.setClip(region.x, region.y, region.width, region.height);
+            if (over) {
+               paintGameOver(graphics);
+            } else {
+               paintScene(graphics, alpha, region);
             }
+         }
+      }
+      profiler.stop(Profiler.Phase.RENDER, t);
+      allocations.frame(t, allocations.record(Profiler.Phase.RENDER, a) - a);
+      profiler.stop(Profiler.Phase.FRAME, t);
+   }
+
+   /*
+    * Adds to the damage where every entity, the particles, a changed score and the
+    * timings were drawn last frame and will be drawn this one, in screen pixels.
+    */
+   private void findDamage(double alpha) {
+      showing.clear();
+      for (int p = 0; p < world.getPlayers(); p++) {
+         if (world.isAlive(p)) {
+            world.getShip(p).getBounds(alpha, area);
+            showWorld(area);
+         }
+      }
+      EntityStore bullets = world.getBullets();
+      for (int i = 0; i < bullets.size(); i++) {
+         double r = bullets.radius[i] + 1;
+         double x = bullets.previousX[i] + (bullets.x[i] - bullets.previousX[i]) * alpha;
+         double y = bullets.previousY[i] + (bullets.y[i] - bullets.previousY[i]) * alpha;
+         area.setBounds((int) Math.floor(x - r), (int) Math.floor(y - r), (int) Math.ceil(2 * r) + 1,
+                 (int) Math.ceil(2 * r) + 1);
+         showWorld(area);
+      }
+      EntityStore asteroids = world.getAsteroids();
+      for (int i = 0; i < asteroids.size(); i++) {
+         asteroids.<Asteroid>owner(i).getBounds(alpha, area);
+         showWorld(area);
+      }
+      particles.plot(alpha, view.getWorldScale(), view.getX(), view.getY());
+      showing.add(particles.getArea());
 
-            //This paints the asteroids and checks for intersection between ship and asteroids
-            for (int i = 0; i < asteroids.size(); i++) {
-               asteroids.get(i).paint(brush);
-               asteroids.get(i).update();
+      damage.addAll(shown);
+      damage.addAll(showing);
+      DamageRegions swap = shown;
+      shown = showing;
+      showing = swap;
 
-               if (asteroids.get(i).intersects(ship)) {
-                  gameOver = true;
-                  //initialized = false;
-               }
-            }
+      int score = score();
+      if (score != shownScore) {
+         damage.add(0, 0, view.getWidth(), compositor.getHudHeight());
+         shownScore = score;
+      }
+      if (overlay || overlayShown) {
+         area.setBounds(width - OVERLAY_WIDTH, 0, OVERLAY_WIDTH, 24 + 14 * overlayLines.length);
+         view.windowToScreen(area, area);
+         damage.add(area);
+         overlayShown = overlay;
+      }
+      //Past a point, one region costs less than many that cover nearly everything anyway
+      if (damage.getCoverage() > FULL_REPAINT) {
+         damage.clear();
+         damage.addScreen();
+      }
+   }
+
+   /*
+    * Marks an area of the world as drawn this frame.
+    */
+   private void showWorld(Rectangle area) {
+      view.worldToScreen(area, area);
+      showing.add(area);
+   }
 
-            //Checks for collisions between asteroids and bullets
-            for (int i = 0; i < bullets.size(); i++) {
-               Bullet bullet = bullets.get(i);
-               for (int j = 0; j < asteroids.size(); j++) {
-                  Asteroid asteroid = asteroids.get(j);
-                  if (asteroid.contains(bullet.getPosition())) {
-                     bullets.remove(i);
-                     asteroids.remove(j);
-                     score += 10;
-                  }
-               }
+   /**
+    * Draws a frame of play: background, particles, entities, score and timings.
+    *
+    * @param graphics object used for drawing, in screen pixels
+    * @param alpha    how far between the last two ticks to draw
+    * @param region   the only part that needs drawing, or null for the whole screen
+    */
+   private void paintScene(Graphics2D graphics, double alpha, Rectangle region) {
+      AffineTransform screen = graphics.getTransform();
+      // Paints the black, starry background
+      compositor.paintBackground(graphics);
+      if (region == null || region.intersects(particles.getArea())) {
+         particles.draw(graphics);
+      }
+
+      //Paints ships, bullets and asteroids, in that order, in world coordinates
+      Rectangle visible = null;
+      if (region != null) {
+         view.screenToWorld(region, worldRegion);
+         visible = worldRegion;
+      }
+      Stroke stroke = graphics.getStroke();
+      graphics.transform(view.getWorldTransform());
+      graphics.setStroke(view.getStroke());
+      EntityStore asteroids = world.getAsteroids();
+      if (BATCHED) {
+         for (int p = 0; p < world.getPlayers(); p++) {
+            if (world.isAlive(p) && shows(world.getShip(p), alpha, visible)) {
+               queue.add(shipPaint, world.getShip(p), alpha);
             }
-            //checks if a bullet is fired
-            if (fired) {
-               bullets.add(new Bullet(new Point2D.Double(ship.getPoints()[2].getX(), ship.getPoints()[2].getY()), 10, ship.rotation));
-               fired = false;
+         }
+         Bullet.queue(queue, bulletPaint, world.getBullets(), alpha, visible);
+         for (int i = 0; i < asteroids.size(); i++) {
+            if (shows(asteroids.owner(i), alpha, visible)) {
+               queue.add(asteroidPaint, asteroids.<Asteroid>owner(i), alpha);
+            }
+         }
+         queue.flush(graphics);
+      } else {
+         for (int p = 0; p < world.getPlayers(); p++) {
+            if (world.isAlive(p) && shows(world.getShip(p), alpha, visible)) {
+               world.getShip(p).paint(graphics, alpha);
             }
+         }
 
-            //paints stars
-            for (int i = 0; i < stars.size(); i++) {
-               stars.get(i).paint(brush);
+         Bullet.paint(graphics, world.getBullets(), alpha);
+
+         for (int i = 0; i < asteroids.size(); i++) {
+            if (shows(asteroids.owner(i), alpha, visible)) {
+               asteroids.<Asteroid>owner(i).paint(graphics, alpha);
             }
+         }
+      }
+      graphics.setTransform(screen);
+      graphics.setStroke(stroke);
 
+      //Displays the Score
+      if (region == null || region.y < compositor.getHudHeight()) {
+         compositor.paintHud(graphics, score());
+      }
+
+      if (overlay) {
+         graphics.scale(view.getScale(), view.getScale());
+         paintOverlay(graphics);
+         graphics.setTransform(screen);
+      }
+   }
+
+   /*
+    * Whether a polygon drawn at alpha reaches into a region of the world, null being all of it.
+    */
+   private boolean shows(Polygon polygon, double alpha, Rectangle region) {
+      if (region == null) {
+         return true;
+      }
+      polygon.getBounds(alpha, area);
+      return area.intersects(region);
+   }
+
+   private void paintGameOver(Graphics2D brush) {
+      //Game over screen, laid out in the window's pixels
+      AffineTransform screen = brush.getTransform();
+      brush.scale(view.getScale(), view.getScale());
+      brush.setColor(Color.black);
+      brush.fillRect(0, 0, width, height);
+      brush.setColor(Color.white);
+      brush.drawString("Game Over", width / 2 - 50, height / 2);
+      brush.drawString("Final Score: " + score(), width / 2 - 50, height / 2 + 20);
+      brush.setTransform(screen);
+   }
+
+   /*
+    * The score of the player at this window: their own when playing on a server.
+    */
+   private int score() {
+      return client != null ? world.getScore(client.getPlayer()) : world.getScore();
+   }
+
+   /**
+    * Draws the per-phase timings in the top right corner. The numbers are only
+    * recomputed every OVERLAY_REFRESH, which keeps them readable.
+    */
+   private void paintOverlay(Graphics2D graphics) {
+      long now = System.nanoTime();
+      if (now - overlayUpdated > OVERLAY_REFRESH) {
+         String[] lines = profiler.summary();
+         overlayLines = Arrays.copyOf(lines, lines.length + 1);
+         overlayLines[lines.length] = String.format("bytes/tick %7.0f  bytes/frame %7.0f",
+                 allocations.getMean(Profiler.Phase.TICK), allocations.getMean(Profiler.Phase.RENDER));
+         if (DIRTY) {
+            overlayLines = Arrays.copyOf(overlayLines, overlayLines.length + 1);
+            overlayLines[lines.length + 1] = String.format("repainted %2d regions, %5.1f%% of screen",
+                    damage.size(), 100 * damage.getCoverage());
          }
-      }else {
-         //Game over screen
-         brush.setColor(Color.black);
-         brush.fillRect(0, 0, width, height);
-         brush.setColor(Color.white);
-         brush.drawString("Game Over", width / 2 - 50, height / 2);
-         brush.drawString("Final Score: " + score, width / 2 - 50, height / 2 + 20);
+         overlayUpdated = now;
+      }
+      graphics.setFont(OVERLAY_FONT);
+      graphics.setColor(Color.green);
+      for (int i = 0; i < overlayLines.length; i++) {
+         graphics.drawString(overlayLines[i], width - OVERLAY_WIDTH, 20 + 14 * i);
       }
    }
 
    //Keybindings
    @Override
    public void keyPressed(KeyEvent e) {
-      if(e.getKeyCode() == KeyEvent.VK_W){
-         ship.thrust(true);
-      }
-      if(e.getKeyCode() == KeyEvent.VK_A){
-         left = true;
-      }
-      if(e.getKeyCode() == KeyEvent.VK_D){
-         right = true;
+      //Ship controls go to the simulation, which takes them at its next tick
+      events.offer(e.getKeyCode(), true, System.nanoTime());
+      //Rewinds a couple of seconds; not while recording, as the log couldn't be replayed, nor online
+      if (e.getKeyCode() == KeyEvent.VK_R && recorder == null && client == null) {
+         synchronized (lock) {
+            history.rewind(world, REWIND_STEP);
+         }
       }
-      if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-         fired = true;
+      //Shows or hides the frame timings
+      if (e.getKeyCode() == KeyEvent.VK_F3) {
+         overlay = !overlay;
       }
 
 
@@ -185,17 +619,6 @@ public class Asteroids extends Game implements KeyListener {
    public void keyTyped(KeyEvent e) {}
    @Override
    public void keyReleased(KeyEvent e) {
-      if(e.getKeyCode() == KeyEvent.VK_W){
-         ship.thrust(false);
-      }
-      if(e.getKeyCode() == KeyEvent.VK_A){
-         left = false;
-      }
-      if(e.getKeyCode() == KeyEvent.VK_D){
-         right = false;
-      }
-      if(e.getKeyCode() == KeyEvent.VK_SPACE){
-         fired = false;
-      }
+      events.offer(e.getKeyCode(), false, System.nanoTime());
    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark measures the hot paths of the game: polygon geometry, the collision tests,
+ * full World ticks at several asteroid and bullet counts, saving and restoring
+ * snapshots of those worlds, and drawing them entity by entity or batched through a
+ * RenderQueue, into an antialiased off-screen image, and moving and drawing particles.
+ * Each benchmark is warmed up, then measured over several timed iterations, and reports
+ * its throughput along with how many bytes it allocates per operation (the same figure
+ * JMH's -prof gc reports as gc.alloc.rate.norm).
+ * <p>
+ * The harness is hand-rolled because JMH can't be used here: it refuses benchmark
+ * classes in the default package, where every class of the game lives, and a class in
+ * a named package can't import from the default package. It guards against the same
+ * traps JMH does, as far as one JVM allows:
+ * <ul>
+ * <li>dead code: every operation folds its result into a volatile field, or leaves it
+ * somewhere that outlives the loop such as an image or a snapshot, so the JIT can't
+ * prove the work unused and drop it;</li>
+ * <li>constant folding: the geometry benchmarks change their input every operation, by
+ * turning a polygon or drawing a fresh position, and a tick moves its world on, so
+ * nothing can be worked out once and hoisted out of the timed loop;</li>
+ * <li>warm-up: a benchmark runs for several untimed iterations before it is measured,
+ * so the timed code is already compiled, and the spread across the measured iterations
+ * is reported so a late recompilation shows up as error;</li>
+ * <li>timer cost: the clock is read once per batch of operations, not per operation.</li>
+ * </ul>
+ * What it can't do is fork. Every benchmark shares one JVM, so a benchmark's profile
+ * can be skewed by the ones before it; passing its name as the filter runs it alone in
+ * a fresh JVM, the equivalent of a JMH fork.
+ * <p>
+ * Usage: java Benchmark [name filter]
+ */
+public class Benchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    private static final int[] ASTEROID_COUNTS = {15, 1_000, 10_000};
+    private static final int[] BULLET_COUNTS = {0, 1_000, 5_000};
+    private static final int[] PARTICLE_COUNTS = {1_000, 4_000};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Results are folded into here so the JIT can't discard the work being measured
+    private static volatile long sink;
+
+    /**
+     * Something to benchmark. Setup runs before every batch of operations and is not timed.
+     */
+    private interface Case {
+        default void setup() {
+        }
+
+        void run();
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        String filter = args.length > 0 ? args[0] : "";
+        System.out.printf("%-40s %14s %12s %14s%n", "benchmark", "ops/s", "error", "bytes/op");
+
+        SplittableRandom random = new SplittableRandom(1);
+        Asteroid asteroid = newAsteroid(400, 300, 0);
+        Ship ship = new Ship(new Point2D.Double(400, 300), 0);
+        Bullet bullet = new Bullet(new Point2D.Double(400, 300), World.BULLET_DIAMETER, 0);
+
+        run(filter, "Polygon.getPoints", () -> {
+            asteroid.rotate(1);
+            sink += asteroid.getPoints().length;
+        });
+        run(filter, "Polygon.getShape", () -> {
+            asteroid.rotate(1);
+            sink += asteroid.getShape().hashCode();
+        });
+        run(filter, "Polygon.contains", () -> {
+            if (asteroid.contains(400 + random.nextDouble(-40, 40), 300 + random.nextDouble(-40, 40))) {
+                sink++;
+            }
+        });
+        run(filter, "Polygon.intersects", () -> {
+            ship.position.setLocation(400 + random.nextDouble(-60, 60), 300 + random.nextDouble(-60, 60));
+            if (asteroid.intersects(ship)) {
+                sink++;
+            }
+        });
+        run(filter, "Circle.intersects", () -> {
+            bullet.position.setLocation(400 + random.nextDouble(-60, 60), 300 + random.nextDouble(-60, 60));
+            if (bullet.intersects(asteroid)) {
+                sink++;
+            }
+        });
+
+        for (int asteroids : ASTEROID_COUNTS) {
+            for (int bullets : BULLET_COUNTS) {
+                run(filter, "World.tick asteroids=" + asteroids + " bullets=" + bullets, new TickCase(asteroids, bullets));
+            }
+        }
+
+        for (int asteroids : ASTEROID_COUNTS) {
+            World world = new World(1, asteroids);
+            Snapshot snapshot = new Snapshot(world.snapshotSize());
+            run(filter, "Snapshot.capture asteroids=" + asteroids, () -> {
+                snapshot.capture(world);
+                sink += snapshot.getTicks();
+            });
+            run(filter, "Snapshot.restore asteroids=" + asteroids, () -> {
+                snapshot.restore(world);
+                sink += world.getTicks();
+            });
+        }
+
+        for (int asteroids : ASTEROID_COUNTS) {
+            World world = new World(1, asteroids);
+            for (int i = 0; i < 200; i++) {
+                Bullet.fire(world.getBullets(), random.nextDouble(World.WIDTH), random.nextDouble(World.HEIGHT),
+                        random.nextDouble(360), World.BULLET_DIAMETER);
+            }
+            BufferedImage image = new BufferedImage(World.WIDTH, World.HEIGHT, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            EntityStore store = world.getAsteroids();
+            run(filter, "Render.each asteroids=" + asteroids, () -> {
+                world.getShip().paint(graphics, 0.5);
+                Bullet.paint(graphics, world.getBullets(), 0.5);
+                for (int i = 0; i < store.size(); i++) {
+                    store.<Asteroid>owner(i).paint(graphics, 0.5);
+                }
+            });
+            RenderQueue queue = new RenderQueue();
+            int shipPaint = queue.state(Ship.OUTLINE, Ship.FILL, 0);
+            int bulletPaint = queue.state(Bullet.OUTLINE, Bullet.FILL, 1);
+            int asteroidPaint = queue.state(Asteroid.OUTLINE, Asteroid.FILL, 2);
+            run(filter, "Render.batched asteroids=" + asteroids, () -> {
+                queue.add(shipPaint, world.getShip(), 0.5);
+                Bullet.queue(queue, bulletPaint, world.getBullets(), 0.5);
+                for (int i = 0; i < store.size(); i++) {
+                    queue.add(asteroidPaint, store.<Asteroid>owner(i), 0.5);
+                }
+                queue.flush(graphics);
+            });
+        }
+
+        for (int n : PARTICLE_COUNTS) {
+            Particles particles = new Particles(n, World.WIDTH, World.HEIGHT, 1);
+            run(filter, "Particles.update particles=" + n, new Case() {
+                @Override
+                public void setup() {
+                    fill(particles, random);
+                }
+
+                @Override
+                public void run() {
+                    particles.update();
+                    sink += particles.size();
+                }
+            });
+            BufferedImage image = new BufferedImage(World.WIDTH, World.HEIGHT, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            fill(particles, random);
+            run(filter, "Particles.paint particles=" + n, () -> particles.paint(graphics, 0.5));
+        }
+    }
+
+    /*
+     * Tops a particle system up to its cap with particles scattered over the world.
+     */
+    private static void fill(Particles particles, SplittableRandom random) {
+        while (particles.spawn(random.nextInt(2), random.nextDouble(World.WIDTH), random.nextDouble(World.HEIGHT),
+                random.nextDouble(-2, 2), random.nextDouble(-2, 2), random.nextDouble(20, 60))) {
+        }
+    }
+
+    /**
+     * A full update and collision tick. Before each batch the world is restarted if the
+     * ship died or splitting has changed the number of asteroids by a tenth, and the bullets are topped back up,
+     * so every measured tick sees about the same number of entities.
+     */
+    private static class TickCase implements Case {
+        private final World world;
+        private final int asteroids, bullets;
+        private final SplittableRandom random = new SplittableRandom(2);
+
+        TickCase(int asteroids, int bullets) {
+            this.world = new World(1, asteroids, Math.max(1, bullets));
+            this.asteroids = asteroids;
+            this.bullets = bullets;
+        }
+
+        @Override
+        public void setup() {
+            if (world.isGameOver() || Math.abs(world.getAsteroids().size() - asteroids) > asteroids / 10) {
+                world.reset();
+            }
+            EntityStore store = world.getBullets();
+            while (store.size() < bullets) {
+                Bullet.fire(store, random.nextDouble(World.WIDTH), random.nextDouble(World.HEIGHT),
+                        random.nextDouble(360), World.BULLET_DIAMETER);
+            }
+        }
+
+        @Override
+        public void run() {
+            world.tick(0);
+            sink += world.getScore();
+        }
+    }
+
+    private static void run(String filter, String name, Case benchmark) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(benchmark);
+        }
+        double[] throughput = new double[ITERATIONS];
+        long operations = 0, allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] result = iteration(benchmark);
+            throughput[i] = result[0] * 1e9 / result[1];
+            operations += result[0];
+            allocated += result[2];
+        }
+
+        double mean = 0;
+        for (double t : throughput) {
+            mean += t / ITERATIONS;
+        }
+        double variance = 0;
+        for (double t : throughput) {
+            variance += (t - mean) * (t - mean) / (ITERATIONS - 1);
+        }
+        System.out.printf("%-40s %14.1f %12.1f %14.1f%n", name, mean, Math.sqrt(variance),
+                (double) allocated / operations);
+    }
+
+    /*
+     * Runs operations in batches until the iteration time is used up.
+     * Returns the operation count, the timed nanoseconds and the bytes allocated while timed.
+     */
+    private static long[] iteration(Case benchmark) {
+        long thread = Thread.currentThread().getId();
+        long operations = 0, elapsed = 0, allocated = 0;
+        int batch = 16;
+        while (elapsed < ITERATION_NANOS) {
+            benchmark.setup();
+            long bytes = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                benchmark.run();
+            }
+            elapsed += System.nanoTime() - start;
+            allocated += THREADS.getThreadAllocatedBytes(thread) - bytes;
+            operations += batch;
+        }
+        return new long[]{operations, elapsed, allocated};
+    }
+
+    private static Asteroid newAsteroid(double x, double y, double rotation) {
+        ShapeTemplate shape = ShapeCatalog.DEFAULT.get(ShapeCatalog.Size.LARGE, 0);
+        return new Asteroid(shape, new Point2D.Double(x, y), rotation);
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * BotPolicy plays a ship in place of a keyboard. Once per tick it looks at the world and
+ * returns the same control bits (THRUST, LEFT, RIGHT, FIRE) the window builds from keys,
+ * so a bot can drive any World, headless or not.
+ * <p>
+ * A policy may keep state between ticks, so each game gets its own instance from
+ * create(). Besides the built-in names, create() accepts the name of any class that
+ * implements BotPolicy and has a public constructor taking no arguments.
+ */
+public interface BotPolicy {
+
+    /**
+     * Decides what a ship does this tick.
+     *
+     * @param world  the world, as of the end of the last tick
+     * @param player whose ship to steer
+     * @return the control bits to tick with
+     */
+    int controls(World world, int player);
+
+    /**
+     * Makes a fresh policy for one game.
+     *
+     * @param name "spin", "random", "aim", or a class name
+     * @param seed seed for any random choices the policy makes
+     * @return the policy
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    static BotPolicy create(String name, long seed) {
+        switch (name) {
+            case "spin":
+                return (world, player) -> World.LEFT | World.FIRE;
+            case "random":
+                return new RandomPolicy(seed);
+            case "aim":
+                return new AimPolicy();
+            default:
+                try {
+                    return (BotPolicy) Class.forName(name).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("No bot policy " + name, e);
+                }
+        }
+    }
+
+    /**
+     * Holds a random combination of controls for a random number of ticks, then picks again.
+     */
+    class RandomPolicy implements BotPolicy {
+        private long random;
+        private int controls, left;
+
+        public RandomPolicy(long seed) {
+            random = seed == 0 ? 1 : seed;
+        }
+
+        @Override
+        public int controls(World world, int player) {
+            if (left-- <= 0) {
+                long bits = next();
+                controls = (int) (bits & (World.THRUST | World.LEFT | World.RIGHT | World.FIRE));
+                left = 5 + (int) ((bits >>> 8) % 20);
+            }
+            return controls;
+        }
+
+        private long next() {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return random;
+        }
+    }
+
+    /**
+     * Turns towards the nearest asteroid and fires once it is lined up, without ever
+     * thrusting.
+     */
+    class AimPolicy implements BotPolicy {
+        // How far off, in degrees, the nose may point and still fire
+        private static final double CONE = 8;
+
+        @Override
+        public int controls(World world, int player) {
+            Ship ship = world.getShip(player);
+            EntityStore asteroids = world.getAsteroids();
+            double x = ship.getPivotX(), y = ship.getPivotY();
+            double nearest = Double.MAX_VALUE, dx = 0, dy = 0;
+            for (int i = 0; i < asteroids.size(); i++) {
+                Asteroid asteroid = asteroids.owner(i);
+                double ax = asteroid.getPivotX() - x, ay = asteroid.getPivotY() - y;
+                double distance = ax * ax + ay * ay;
+                if (distance < nearest) {
+                    nearest = distance;
+                    dx = ax;
+                    dy = ay;
+                }
+            }
+            if (nearest == Double.MAX_VALUE) {
+                return 0;
+            }
+            //Degrees to turn, -180 to 180; positive is clockwise on screen, which RIGHT turns
+            double turn = Math.toDegrees(Math.atan2(dy, dx)) - ship.getRotation();
+            turn = ((turn % 360) + 540) % 360 - 180;
+            int controls = 0;
+            if (turn > World.TURN_SPEED / 2.0) {
+                controls |= World.RIGHT;
+            } else if (turn < -World.TURN_SPEED / 2.0) {
+                controls |= World.LEFT;
+            }
+            if (Math.abs(turn) < CONE) {
+                controls |= World.FIRE;
+            }
+            return controls;
+        }
+    }
+}
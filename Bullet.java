@@ -1,9 +1,16 @@
 import java.awt.*;
+import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 
 
 public class Bullet extends Circle{
-    private Point2D.Double velocity;
+    // How far a bullet travels every tick
+    public static final double SPEED = 10;
+    // How many ticks a bullet lives before it fizzles out
+    public static final int LIFETIME = 60;
+    // Colors a bullet is drawn in
+    public static final Color OUTLINE = Color.yellow, FILL = Color.red;
+    private final Vec2 velocity = new Vec2();
     /**
      * Creates a circle with the specified position and diameter.
      *
@@ -15,24 +22,134 @@ public class Bullet extends Circle{
     public Bullet(Point2D.Double position, double diameter,double rotation) {
         super(position, diameter);
         this.rotation = rotation;
-        velocity = new Point2D.Double(0,0);
+        accelerate(SPEED);
     }
 
     public void accelerate (double acceleration) {
-        velocity.x += acceleration * Math.cos(Math.toRadians(rotation));
-        velocity.y += acceleration * Math.sin(Math.toRadians(rotation));
+        velocity.add(acceleration * Trig.cos(rotation), acceleration * Trig.sin(rotation));
     }
 
     @Override
     public void update() {
-        accelerate(10);
         position.x = velocity.x + position.x;
         position.y = velocity.y + position.y;
     }
 
     @Override
     public void paint(Graphics brush) {
-        outline(brush,Color.yellow);
-        fill(brush,Color.red);
+        outline(brush,OUTLINE);
+        fill(brush,FILL);
+    }
+
+    /**
+     * Fires a bullet from a pooled store. The shot is dropped if every slot is in use.
+     *
+     * @param bullets  store holding the bullets
+     * @param x        x coordinate to fire from
+     * @param y        y coordinate to fire from
+     * @param rotation direction to fire in, in degrees
+     * @param diameter diameter of the bullet
+     * @return index of the new bullet, or -1 if the store is full
+     */
+    public static int fire(EntityStore bullets, double x, double y, double rotation, double diameter) {
+        int i = bullets.add(x, y, rotation, diameter / 2, null);
+        if (i >= 0) {
+            bullets.vx[i] = SPEED * bullets.dx[i];
+            bullets.vy[i] = SPEED * bullets.dy[i];
+            bullets.life[i] = LIFETIME;
+        }
+        return i;
+    }
+
+    /**
+     * Moves the bullets from index from up to (not including) to and shortens their
+     * lives, without freeing any slots, so separate ranges can run on separate threads.
+     *
+     * @param bullets store holding the bullets
+     * @param from    first bullet to move
+     * @param to      one past the last bullet to move
+     */
+    public static void update(EntityStore bullets, int from, int to) {
+        double[] x = bullets.x, y = bullets.y, vx = bullets.vx, vy = bullets.vy;
+        int[] life = bullets.life;
+        for (int i = from; i < to; i++) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+            life[i]--;
+        }
+    }
+
+    /**
+     * Frees the slots of bullets that have expired or left the world.
+     *
+     * @param bullets store holding the bullets
+     * @param width   width of the world
+     * @param height  height of the world
+     */
+    public static void cull(EntityStore bullets, double width, double height) {
+        double[] x = bullets.x, y = bullets.y;
+        int[] life = bullets.life;
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            if (life[i] <= 0 || x[i] < 0 || y[i] < 0 || x[i] > width || y[i] > height) {
+                bullets.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Paints every bullet in the store, blended between its previous and current position.
+     *
+     * @param brush   object used for drawing
+     * @param bullets store holding the bullets
+     * @param alpha   how far between the previous (0) and current (1) position to draw
+     */
+    public static void paint(Graphics brush, EntityStore bullets, double alpha) {
+        Graphics2D graphics2D = (Graphics2D) brush;
+        Ellipse2D.Double dot = new Ellipse2D.Double();
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            double r = bullets.radius[i];
+            double x = bullets.previousX[i] + (bullets.x[i] - bullets.previousX[i]) * alpha;
+            double y = bullets.previousY[i] + (bullets.y[i] - bullets.previousY[i]) * alpha;
+            dot.setFrame(x - r, y - r, 2 * r, 2 * r);
+            graphics2D.setColor(OUTLINE);
+            graphics2D.draw(dot);
+            graphics2D.setColor(FILL);
+            graphics2D.fill(dot);
+        }
+    }
+
+    /**
+     * Queues every bullet in the store for drawing in one batch, blended between its
+     * previous and current position like paint(brush, bullets, alpha).
+     *
+     * @param queue   queue to add the bullets to
+     * @param state   paint state to draw them with, from queue.state()
+     * @param bullets store holding the bullets
+     * @param alpha   how far between the previous (0) and current (1) position to draw
+     */
+    public static void queue(RenderQueue queue, int state, EntityStore bullets, double alpha) {
+        queue(queue, state, bullets, alpha, null);
+    }
+
+    /**
+     * Queues the bullets that reach into a region, blended between their previous and
+     * current position like paint(brush, bullets, alpha).
+     *
+     * @param queue   queue to add the bullets to
+     * @param state   paint state to draw them with, from queue.state()
+     * @param bullets store holding the bullets
+     * @param alpha   how far between the previous (0) and current (1) position to draw
+     * @param region  part of the screen being drawn, or null for all of it
+     */
+    public static void queue(RenderQueue queue, int state, EntityStore bullets, double alpha, Rectangle region) {
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            double x = bullets.previousX[i] + (bullets.x[i] - bullets.previousX[i]) * alpha;
+            double y = bullets.previousY[i] + (bullets.y[i] - bullets.previousY[i]) * alpha;
+            double r = bullets.radius[i] + 1;
+            if (region == null || x + r >= region.x && y + r >= region.y
+                    && x - r <= region.x + region.width && y - r <= region.y + region.height) {
+                queue.addCircle(state, x, y, bullets.radius[i]);
+            }
+        }
     }
 }
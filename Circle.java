@@ -1,5 +1,5 @@
 import java.awt.*;
-import java.awt.geom.Area;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 
@@ -8,6 +8,7 @@ import java.awt.geom.Point2D;
  */
 public abstract class Circle {
     protected final Point2D.Double position; // Location of the circle's center
+    private final Point2D.Double previousPosition; // Location as of the last tick
 
     private final double diameter; // Diameter of the circle
 
@@ -19,6 +20,7 @@ public abstract class Circle {
     public Circle(Point2D.Double position, double diameter) {
         this.position = position;
         this.diameter = diameter;
+        this.previousPosition = new Point2D.Double(position.x, position.y);
     }
 
     /**
@@ -36,18 +38,28 @@ public abstract class Circle {
     }
 
     /**
-     * Determines whether the circle intersects with another circle.
-     * This code is easy to extend to checking for intersections with
-     * any other shape that uses a Path2D.Double.
+     * @return x coordinate of the center, without copying it
+     */
+    public double getX() { return position.x; }
+
+    /**
+     * @return y coordinate of the center, without copying it
+     */
+    public double getY() { return position.y; }
+
+    public double getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * Determines whether the circle intersects with a polygon.
+     * See Collisions for the test used.
      *
-     * @param other circle to check against for intersection
-     * @return true if the two circles intersect
+     * @param other polygon to check against for intersection
+     * @return true if the circle and polygon intersect
      */
     public boolean intersects(Polygon other) {
-        Area area = new Area(getShape());
-        Area otherArea = new Area(other.getShape());
-        area.intersect(otherArea);
-        return !area.isEmpty();
+        return Collisions.intersects(this, other);
     }
 
     /**
@@ -74,6 +86,29 @@ public abstract class Circle {
         graphics2D.fill(getShape());
     }
 
+    /**
+     * Remembers the current position so that frames drawn before the next tick
+     * can blend between the two. Call this just before update().
+     */
+    public final void savePrevious() {
+        previousPosition.setLocation(position);
+    }
+
+    /**
+     * Paints the circle part of the way between its previous and current position.
+     *
+     * @param brush object used for drawing
+     * @param alpha how far between the previous (0) and current (1) position to draw
+     */
+    public final void paint(Graphics brush, double alpha) {
+        Graphics2D graphics2D = (Graphics2D) brush;
+        AffineTransform saved = graphics2D.getTransform();
+        graphics2D.translate((previousPosition.x - position.x) * (1 - alpha),
+                (previousPosition.y - position.y) * (1 - alpha));
+        paint(brush);
+        graphics2D.setTransform(saved);
+    }
+
     /**
      * Override this method to update the object every frame.
      */
@@ -0,0 +1,277 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Client plays in a World run by a Server. It keeps a local copy of the world for
+ * drawing, rebuilt from every SNAPSHOT the server sends, and sends the player's
+ * controls every tick.
+ * <p>
+ * The player's own ship is predicted: each tick it is steered locally straight away,
+ * as World would, so the controls respond without waiting a round trip. Every input
+ * is numbered and remembered. When a snapshot arrives, saying which input the server
+ * applied last and where that left the ship, the ship is put there and the inputs the
+ * server hasn't applied yet are replayed on top.
+ */
+public class Client implements Closeable {
+    // How often to repeat JOIN while waiting for the server to answer
+    private static final long JOIN_RETRY_MILLIS = 100;
+
+    private final Transport transport;
+    private final SocketAddress server;
+    private final int player;
+    private final World world;
+    private final int tickRate;
+    private final double positionScale;  // Steps per pixel positions arrive in
+    private final ShapeCatalog catalog = ShapeCatalog.DEFAULT;
+
+    private final NetState[] history = new NetState[Server.HISTORY];
+    private int received = -1;        // Newest snapshot applied
+    private final int[] inputs = new int[Server.HISTORY];  // Sent controls, by number modulo HISTORY
+    private int nextInput;            // Number the next input will get
+    private Asteroid[] byId = new Asteroid[64];
+    private final AsteroidPool asteroidPool;
+
+    private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET).order(Protocol.ORDER);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_PACKET).order(Protocol.ORDER);
+
+    private long bytesReceived, snapshots, corrections;
+    private double correctionDistance;
+
+    private Client(Transport transport, SocketAddress server, int player, long seed, int players, int maxBullets,
+                   int tickRate, int width, int height) {
+        this.transport = transport;
+        this.server = server;
+        this.player = player;
+        this.tickRate = tickRate;
+        this.world = new World(seed, 0, maxBullets, players, width, height);
+        this.asteroidPool = new AsteroidPool(catalog, width, height);
+        this.positionScale = Protocol.positionScale(width, height);
+        for (int i = 0; i < history.length; i++) {
+            history[i] = new NetState();
+        }
+    }
+
+    /**
+     * Joins a server, waiting until it answers.
+     *
+     * @param transport     how to reach the server
+     * @param server        address of the server
+     * @param timeoutMillis how long to keep trying
+     * @return the connected client
+     * @throws IOException if the server doesn't answer in time or has no free slot
+     */
+    public static Client connect(Transport transport, SocketAddress server, long timeoutMillis) throws IOException {
+        ByteBuffer packet = ByteBuffer.allocate(Protocol.MAX_PACKET).order(Protocol.ORDER);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long nextJoin = 0;
+        while (System.currentTimeMillis() < deadline) {
+            if (System.currentTimeMillis() >= nextJoin) {
+                transport.send(ByteBuffer.wrap(new byte[]{Protocol.JOIN}), server);
+                nextJoin = System.currentTimeMillis() + JOIN_RETRY_MILLIS;
+            }
+            packet.clear();
+            SocketAddress from = transport.receive(packet);
+            if (from == null) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new IOException("Interrupted while joining", e);
+                }
+                continue;
+            }
+            packet.flip();
+            if (from.equals(server) && packet.remaining() >= 1 + 1 + 8 + 1 + 4 + 4 + 4 + 4
+                    && packet.get() == Protocol.WELCOME) {
+                int player = packet.get();
+                if (player < 0) {
+                    throw new IOException("Server " + server + " is full");
+                }
+                return new Client(transport, server, player, packet.getLong(), packet.get() & 0xFF, packet.getInt(),
+                        packet.getInt(), packet.getInt(), packet.getInt());
+            }
+        }
+        throw new IOException("No answer from " + server);
+    }
+
+    /**
+     * Runs one client tick: sends this tick's controls, moves the player's ship
+     * straight away, and applies any snapshots that have arrived.
+     *
+     * @param controls the control bits (THRUST, LEFT, RIGHT, FIRE) held this tick
+     * @throws IOException if the transport fails
+     */
+    public void tick(int controls) throws IOException {
+        int number = nextInput++;
+        inputs[Math.floorMod(number, Server.HISTORY)] = controls;
+        int count = Math.min(Protocol.INPUT_REDUNDANCY, number + 1);
+        out.clear();
+        out.put(Protocol.INPUT).put((byte) player).putInt(received).putInt(number).put((byte) count);
+        for (int n = number - count + 1; n <= number; n++) {
+            out.put((byte) inputs[Math.floorMod(n, Server.HISTORY)]);
+        }
+        out.flip();
+        transport.send(out, server);
+
+        if (world.isAlive(player)) {
+            World.steer(world.getShip(player), controls);
+        }
+
+        world.clearHits();
+        in.clear();
+        while (transport.receive(in) != null) {
+            in.flip();
+            bytesReceived += in.remaining();
+            if (in.remaining() > 1 && in.get() == Protocol.SNAPSHOT) {
+                readSnapshot();
+            }
+            in.clear();
+        }
+    }
+
+    private void readSnapshot() {
+        int seq = in.getInt();
+        int baseSeq = in.getInt();
+        if (seq <= received) {
+            return; // Older than what we have; UDP may reorder
+        }
+        NetState base = NetState.EMPTY;
+        if (baseSeq >= 0) {
+            base = history[baseSeq % Server.HISTORY];
+            if (base.seq != baseSeq) {
+                return; // We no longer have the baseline; wait for the next snapshot
+            }
+        }
+        NetState state = history[seq % Server.HISTORY];
+        if (state == base) {
+            return;
+        }
+        int applied = in.getInt();
+        double x = in.getDouble(), y = in.getDouble(), rotation = in.getDouble();
+        double vx = in.getDouble(), vy = in.getDouble();
+        state.read(in, base, seq);
+        received = seq;
+        snapshots++;
+        apply(state);
+        predict(applied, x, y, rotation, vx, vy);
+    }
+
+    /*
+     * Copies a snapshot into the local world, blending from where things were drawn.
+     */
+    private void apply(NetState state) {
+        for (int p = 0; p < state.players && p < world.getPlayers(); p++) {
+            world.setAlive(p, state.alive[p]);
+            world.setScore(p, state.score[p]);
+            if (p != player) {
+                Ship ship = world.getShip(p);
+                ship.restore(Protocol.position(state.shipX[p], positionScale),
+                        Protocol.position(state.shipY[p], positionScale),
+                        Protocol.angle(state.shipRotation[p]), ship.getX(), ship.getY(), ship.getRotation());
+                ship.thrust(state.thrust[p]);
+            }
+        }
+
+        EntityStore asteroids = world.getAsteroids();
+        asteroids.clear();
+        if (byId.length < state.ids) {
+            byId = Arrays.copyOf(byId, Math.max(state.ids, byId.length * 2));
+        }
+        for (int id = 0; id < byId.length; id++) {
+            if (byId[id] != null && (id >= state.ids || !state.present[id])) {
+                world.addHit(byId[id].getPivotX(), byId[id].getPivotY(), byId[id].getBoundingRadius());
+                asteroidPool.release(byId[id]);
+                byId[id] = null;
+            }
+        }
+        for (int id = 0; id < state.ids; id++) {
+            if (!state.present[id]) {
+                continue;
+            }
+            ShapeTemplate template = catalog.get(state.template[id]);
+            double x = Protocol.position(state.x[id], positionScale), y = Protocol.position(state.y[id], positionScale);
+            double rotation = Protocol.angle(state.rotation[id]);
+            Asteroid asteroid = byId[id];
+            if (asteroid == null || asteroid.getTemplate() != template) {
+                asteroidPool.release(asteroid);
+                asteroid = byId[id] = asteroidPool.take(template, x, y, rotation);
+            } else {
+                asteroid.restore(x, y, rotation, asteroid.getX(), asteroid.getY(), asteroid.getRotation());
+            }
+            int i = asteroids.add(x, y, rotation, asteroid.getBoundingRadius(), asteroid);
+            asteroids.tag[i] = id;
+        }
+
+        EntityStore bullets = world.getBullets();
+        bullets.clear();
+        for (int i = 0; i < state.bullets; i++) {
+            bullets.add(Protocol.position(state.bulletX[i], positionScale),
+                    Protocol.position(state.bulletY[i], positionScale), 0, World.BULLET_DIAMETER / 2.0, null);
+        }
+    }
+
+    /*
+     * Puts the player's ship where the server has it after input number applied, then
+     * replays the inputs sent since.
+     */
+    private void predict(int applied, double x, double y, double rotation, double vx, double vy) {
+        Ship ship = world.getShip(player);
+        double predictedX = ship.getX(), predictedY = ship.getY();
+        double previousX = ship.getPreviousX(), previousY = ship.getPreviousY();
+        double previousRotation = ship.getPreviousRotation();
+        ship.restore(x, y, rotation, x, y, rotation);
+        ship.getVelocity().set(vx, vy);
+        if (world.isAlive(player)) {
+            for (int n = Math.max(applied + 1, nextInput - Server.HISTORY); n < nextInput; n++) {
+                World.steer(ship, inputs[Math.floorMod(n, Server.HISTORY)]);
+            }
+        }
+        double error = Math.hypot(ship.getX() - predictedX, ship.getY() - predictedY);
+        if (error > 1e-9) {
+            corrections++;
+            correctionDistance += error;
+        }
+        // Keep drawing from where the ship was drawn, so a correction doesn't flicker
+        ship.restore(ship.getX(), ship.getY(), ship.getRotation(), previousX, previousY, previousRotation);
+    }
+
+    /**
+     * Tells the server this player is leaving and closes the transport.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.clear();
+            out.put(Protocol.LEAVE).put((byte) player);
+            out.flip();
+            transport.send(out, server);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * @return the local copy of the world, for drawing
+     */
+    public World getWorld() { return world; }
+
+    public int getPlayer() { return player; }
+
+    public int getTickRate() { return tickRate; }
+
+    public long getBytesReceived() { return bytesReceived; }
+
+    public long getSnapshots() { return snapshots; }
+
+    /**
+     * @return how many snapshots moved the player's ship away from where it was predicted
+     */
+    public long getCorrections() { return corrections; }
+
+    /**
+     * @return average distance, in pixels, a correction moved the player's ship
+     */
+    public double getMeanCorrection() { return corrections == 0 ? 0 : correctionDistance / corrections; }
+}
@@ -0,0 +1,122 @@
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.util.SplittableRandom;
+
+/**
+ * CollisionCheck compares the fast tests in Collisions with the java.awt.geom.Area test
+ * they replaced, on random pairs: outlines from the shape catalog, random lumpy and
+ * convex outlines and the ship, each turned and placed so that about a third of the pairs
+ * overlap, and bullets of random sizes against the same outlines.
+ * <p>
+ * Usage: java CollisionCheck [trials] [seed]
+ * <p>
+ * The process exits with status 1 if any pair is judged differently, so the check can
+ * be run after any change to the narrow phase.
+ */
+public class CollisionCheck {
+    // Mismatches printed before the rest are only counted
+    private static final int SHOWN = 10;
+    // How far, as a fraction of its size, Area's curves may stray from a true circle
+    private static final double BULGE = 1e-3;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        ShapeTemplate[] templates = templates(random);
+
+        int polygonHits = 0, circleHits = 0, mismatches = 0;
+        for (int t = 0; t < trials; t++) {
+            Polygon a = place(random, templates, 400, 300);
+            Polygon b = place(random, templates, a.getPivotX(), a.getPivotY());
+            boolean fast = Collisions.intersects(a, b);
+            boolean exact = Collisions.areaIntersects(a.getShape(), b.getShape());
+            polygonHits += exact ? 1 : 0;
+            if (fast != exact && mismatches++ < SHOWN) {
+                System.out.printf("trial %d: polygons %s at (%.3f, %.3f) turned %.0f and %s at (%.3f, %.3f) turned %.0f,"
+                                + " fast test says %b%n", t, describe(a), a.getX(), a.getY(), a.getRotation(),
+                        describe(b), b.getX(), b.getY(), b.getRotation(), fast);
+            }
+
+            double reach = a.getBoundingRadius() + 10;
+            Bullet bullet = new Bullet(new Point2D.Double(a.getPivotX() + random.nextDouble(-reach, reach),
+                    a.getPivotY() + random.nextDouble(-reach, reach)), random.nextDouble(1, 20), 0);
+            fast = Collisions.intersects(bullet, a);
+            exact = Collisions.areaIntersects(bullet.getShape(), a.getShape());
+            circleHits += exact ? 1 : 0;
+            //Area draws a circle as curves that bulge out a little, so a graze only counts
+            //against the fast test if the Area test agrees on a circle a hair smaller or larger
+            if (fast != exact && circleOverlaps(bullet, a, fast ? 1 + BULGE : 1 - BULGE) != fast
+                    && mismatches++ < SHOWN) {
+                System.out.printf("trial %d: bullet of diameter %.3f at (%.3f, %.3f) and polygon %s at (%.3f, %.3f)"
+                                + " turned %.0f, fast test says %b%n", t, bullet.getDiameter(), bullet.getX(), bullet.getY(),
+                        describe(a), a.getX(), a.getY(), a.getRotation(), fast);
+            }
+        }
+
+        System.out.printf("trials     %d%n", trials);
+        System.out.printf("overlaps   %d polygon pairs, %d bullets%n", polygonHits, circleHits);
+        System.out.printf("mismatches %d%n", mismatches);
+        if (mismatches > 0) {
+            System.out.println("FAILED: the fast tests disagree with areaIntersects");
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Every outline in the default catalog, and as many again made up here: half rough
+     * rings that are mostly concave, half convex, at assorted sizes.
+     */
+    private static ShapeTemplate[] templates(SplittableRandom random) {
+        ShapeCatalog catalog = ShapeCatalog.DEFAULT;
+        ShapeCatalog.Size[] sizes = ShapeCatalog.Size.values();
+        int fromCatalog = sizes.length * catalog.getVariants();
+        ShapeTemplate[] templates = new ShapeTemplate[2 * fromCatalog];
+        for (int i = 0; i < fromCatalog; i++) {
+            templates[i] = catalog.get(sizes[i / catalog.getVariants()], i % catalog.getVariants());
+        }
+        for (int i = fromCatalog; i < templates.length; i++) {
+            int n = 3 + random.nextInt(10);
+            double radius = random.nextDouble(5, 60);
+            boolean convex = i % 2 == 0;
+            Point2D.Double[] shape = new Point2D.Double[n];
+            for (int k = 0; k < n; k++) {
+                double angle = 2 * Math.PI * (k + random.nextDouble(-0.4, 0.4)) / n;
+                double distance = convex ? radius : radius * random.nextDouble(0.3, 1);
+                shape[k] = new Point2D.Double(radius + distance * Math.cos(angle), radius + distance * Math.sin(angle));
+            }
+            templates[i] = new ShapeTemplate(shape);
+        }
+        return templates;
+    }
+
+    /*
+     * A random outline, or now and then the ship, turned any way and placed so its pivot
+     * is near (x, y): within the distance at which it could touch a polygon there.
+     */
+    private static Polygon place(SplittableRandom random, ShapeTemplate[] templates, double x, double y) {
+        double rotation = random.nextInt(360);
+        Polygon polygon = random.nextInt(8) == 0
+                ? new Ship(new Point2D.Double(), rotation)
+                : new Asteroid(templates[random.nextInt(templates.length)], new Point2D.Double(), rotation);
+        double reach = 2 * polygon.getBoundingRadius() + 20;
+        double pivotX = x + random.nextDouble(-reach, reach), pivotY = y + random.nextDouble(-reach, reach);
+        polygon.restore(pivotX - polygon.getPivotX(), pivotY - polygon.getPivotY(), rotation,
+                pivotX - polygon.getPivotX(), pivotY - polygon.getPivotY(), rotation);
+        return polygon;
+    }
+
+    /*
+     * The Area test for the bullet, with its diameter scaled.
+     */
+    private static boolean circleOverlaps(Bullet bullet, Polygon polygon, double scale) {
+        double diameter = bullet.getDiameter() * scale;
+        return Collisions.areaIntersects(new Ellipse2D.Double(bullet.getX() - diameter / 2, bullet.getY() - diameter / 2,
+                diameter, diameter), polygon.getShape());
+    }
+
+    private static String describe(Polygon polygon) {
+        return (polygon instanceof Ship ? "ship" : "outline") + " of " + polygon.getTemplate().size() + " points";
+    }
+}
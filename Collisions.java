@@ -0,0 +1,176 @@
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Point2D;
+
+/**
+ * Collisions is the narrow phase: exact intersection tests between pairs that the
+ * broad phase (SpatialHash) says might touch. Every test starts with a cheap
+ * bounding-circle rejection and then works directly on the cached vertices of the
+ * shapes, so nothing is allocated.
+ * <p>
+ * The original java.awt.geom.Area based test is kept as areaIntersects so the fast
+ * tests can be checked against it, which CollisionCheck does on random pairs.
+ */
+public final class Collisions {
+
+    private Collisions() {
+    }
+
+    /**
+     * Determines whether two polygons overlap. Convex pairs use the separating axis
+     * test; anything else falls back to edge crossing plus containment, which is
+     * exact for any simple polygon.
+     *
+     * @param a first polygon
+     * @param b second polygon
+     * @return true if the polygons intersect
+     */
+    public static boolean intersects(Polygon a, Polygon b) {
+        double dx = a.getPivotX() - b.getPivotX();
+        double dy = a.getPivotY() - b.getPivotY();
+        double reach = a.getBoundingRadius() + b.getBoundingRadius();
+        if (dx * dx + dy * dy >= reach * reach) {
+            return false;
+        }
+        Point2D.Double[] pointsA = a.getPoints();
+        Point2D.Double[] pointsB = b.getPoints();
+        if (a.isConvex() && b.isConvex()) {
+            return !separated(pointsA, pointsB) && !separated(pointsB, pointsA);
+        }
+        return edgesCross(pointsA, pointsB)
+                || contains(pointsB, pointsA[0].x, pointsA[0].y)
+                || contains(pointsA, pointsB[0].x, pointsB[0].y);
+    }
+
+    /**
+     * Determines whether a circle overlaps a polygon, by checking whether the circle's
+     * center is inside the polygon or closer than its radius to one of the edges.
+     *
+     * @param circle  the circle
+     * @param polygon the polygon
+     * @return true if the shapes intersect
+     */
+    public static boolean intersects(Circle circle, Polygon polygon) {
+        double x = circle.position.x;
+        double y = circle.position.y;
+        double radius = circle.getDiameter() / 2;
+        double dx = x - polygon.getPivotX();
+        double dy = y - polygon.getPivotY();
+        double reach = radius + polygon.getBoundingRadius();
+        if (dx * dx + dy * dy >= reach * reach) {
+            return false;
+        }
+        Point2D.Double[] points = polygon.getPoints();
+        if (contains(points, x, y)) {
+            return true;
+        }
+        for (int i = 0, j = points.length - 1; i < points.length; j = i++) {
+            if (distanceSquared(x, y, points[j], points[i]) < radius * radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if a point is inside a closed polygon by counting how many edges a
+     * ray from the point crosses.
+     *
+     * @param points vertices of the polygon, the last joined back to the first
+     * @param x      x coordinate of the point
+     * @param y      y coordinate of the point
+     * @return true if the point is inside
+     */
+    public static boolean contains(Point2D.Double[] points, double x, double y) {
+        boolean inside = false;
+        for (int i = 0, j = points.length - 1; i < points.length; j = i++) {
+            Point2D.Double p = points[i], q = points[j];
+            if ((p.y > y) != (q.y > y) && x < (q.x - p.x) * (y - p.y) / (q.y - p.y) + p.x) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * The original constructive area geometry test. It is slow and allocates heavily,
+     * but it is the reference the other tests must agree with.
+     *
+     * @param a first shape
+     * @param b second shape
+     * @return true if the shapes intersect
+     */
+    public static boolean areaIntersects(Shape a, Shape b) {
+        Area area = new Area(a);
+        Area otherArea = new Area(b);
+        area.intersect(otherArea);
+        return !area.isEmpty();
+    }
+
+    /*
+     * Checks whether one of a's edge normals separates the two convex polygons.
+     */
+    private static boolean separated(Point2D.Double[] a, Point2D.Double[] b) {
+        for (int i = 0, j = a.length - 1; i < a.length; j = i++) {
+            double axisX = a[j].y - a[i].y;
+            double axisY = a[i].x - a[j].x;
+            if (axisX == 0 && axisY == 0) {
+                continue; // Repeated vertex, no edge
+            }
+            double minA = Double.POSITIVE_INFINITY, maxA = Double.NEGATIVE_INFINITY;
+            for (Point2D.Double p : a) {
+                double d = p.x * axisX + p.y * axisY;
+                minA = Math.min(minA, d);
+                maxA = Math.max(maxA, d);
+            }
+            double minB = Double.POSITIVE_INFINITY, maxB = Double.NEGATIVE_INFINITY;
+            for (Point2D.Double p : b) {
+                double d = p.x * axisX + p.y * axisY;
+                minB = Math.min(minB, d);
+                maxB = Math.max(maxB, d);
+            }
+            if (maxA <= minB || maxB <= minA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Checks whether any edge of a properly crosses any edge of b.
+     */
+    private static boolean edgesCross(Point2D.Double[] a, Point2D.Double[] b) {
+        for (int i = 0, j = a.length - 1; i < a.length; j = i++) {
+            for (int k = 0, l = b.length - 1; k < b.length; l = k++) {
+                double d1 = orientation(b[l], b[k], a[j].x, a[j].y);
+                double d2 = orientation(b[l], b[k], a[i].x, a[i].y);
+                if (d1 * d2 >= 0) {
+                    continue;
+                }
+                double d3 = orientation(a[j], a[i], b[l].x, b[l].y);
+                double d4 = orientation(a[j], a[i], b[k].x, b[k].y);
+                if (d3 * d4 < 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double orientation(Point2D.Double from, Point2D.Double to, double x, double y) {
+        return (to.x - from.x) * (y - from.y) - (to.y - from.y) * (x - from.x);
+    }
+
+    /*
+     * Squared distance from a point to the segment between from and to.
+     */
+    private static double distanceSquared(double x, double y, Point2D.Double from, Point2D.Double to) {
+        double edgeX = to.x - from.x, edgeY = to.y - from.y;
+        double length = edgeX * edgeX + edgeY * edgeY;
+        double t = length == 0 ? 0 : ((x - from.x) * edgeX + (y - from.y) * edgeY) / length;
+        t = Math.max(0, Math.min(1, t));
+        double dx = from.x + t * edgeX - x;
+        double dy = from.y + t * edgeY - y;
+        return dx * dx + dy * dy;
+    }
+}
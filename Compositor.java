@@ -0,0 +1,132 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.List;
+
+/**
+ * Compositor builds each frame out of layers so that only the things that move are
+ * drawn from scratch. The starfield never changes, so it is drawn once into an
+ * accelerated VolatileImage and redrawn only if the video memory behind it is lost.
+ * The score is drawn into its own small image, redrawn only when the score changes.
+ * Every frame is then two image copies plus the moving entities in between.
+ * <p>
+ * Both layers are the size of the frame being rendered, as the View says. The stars are
+ * placed in the world and the score in the window, so a new view redraws both.
+ */
+public class Compositor {
+    // Height of the strip along the top of the window the score is shown in
+    public static final int HUD_HEIGHT = 30;
+
+    private final List<Star> stars;
+    private final RenderingHints hints;
+    private View view;
+
+    private VolatileImage background;
+    private BufferedImage hud;
+    private int hudScore = -1;
+
+    /**
+     * Creates a compositor for a view.
+     *
+     * @param stars the stars making up the background, in world coordinates
+     * @param view  the frame to compose and where the world is in it
+     * @param hints rendering hints to draw the layers with
+     */
+    public Compositor(List<Star> stars, View view, RenderingHints hints) {
+        this.stars = stars;
+        this.view = view;
+        this.hints = hints;
+    }
+
+    /**
+     * Composes frames for another view from now on, such as after the window is resized.
+     *
+     * @param view the frame to compose and where the world is in it
+     */
+    public void setView(View view) {
+        this.view = view;
+        if (background != null) {
+            background.flush();
+            background = null;
+        }
+        hud = null;
+    }
+
+    /**
+     * @return height of the strip the score is shown in, in screen pixels
+     */
+    public int getHudHeight() {
+        return (int) Math.ceil(HUD_HEIGHT * view.getScale());
+    }
+
+    /**
+     * Covers the screen with the black, starry background.
+     *
+     * @param brush object used for drawing
+     */
+    public void paintBackground(Graphics2D brush) {
+        GraphicsConfiguration config = brush.getDeviceConfiguration();
+        do {
+            int state = background == null ? VolatileImage.IMAGE_INCOMPATIBLE : background.validate(config);
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (background != null) {
+                    background.flush();
+                }
+                background = config.createCompatibleVolatileImage(view.getWidth(), view.getHeight());
+                state = VolatileImage.IMAGE_RESTORED;
+            }
+            if (state == VolatileImage.IMAGE_RESTORED) {
+                renderBackground(background.createGraphics());
+            }
+            brush.drawImage(background, 0, 0, null);
+        } while (background.contentsLost());
+    }
+
+    /**
+     * Draws the score in the corner of the screen.
+     *
+     * @param brush object used for drawing
+     * @param score the current score
+     */
+    public void paintHud(Graphics2D brush, int score) {
+        if (hud == null) {
+            hud = brush.getDeviceConfiguration().createCompatibleImage(view.getWidth(), getHudHeight(),
+                    Transparency.TRANSLUCENT);
+            hudScore = -1;
+        }
+        if (score != hudScore) {
+            renderHud(score);
+        }
+        brush.drawImage(hud, 0, 0, null);
+    }
+
+    private void renderBackground(Graphics2D graphics) {
+        graphics.addRenderingHints(hints);
+        graphics.setColor(Color.black);
+        graphics.fillRect(0, 0, view.getWidth(), view.getHeight());
+        graphics.transform(view.getWorldTransform());
+        for (int i = 0; i < stars.size(); i++) {
+            stars.get(i).paint(graphics);
+        }
+        graphics.dispose();
+    }
+
+    private void renderHud(int score) {
+        Graphics2D graphics = hud.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, hud.getWidth(), hud.getHeight());
+        graphics.setComposite(AlphaComposite.SrcOver);
+        graphics.addRenderingHints(hints);
+        graphics.scale(view.getScale(), view.getScale());
+        //Displays the Score
+        graphics.setColor(Color.white);
+        graphics.drawString("Score " + score, 10, 20);
+        graphics.dispose();
+        hudScore = score;
+    }
+}
@@ -0,0 +1,168 @@
+import java.awt.Rectangle;
+
+/**
+ * DamageRegions is the set of screen rectangles that need repainting in a frame. Every
+ * rectangle added is merged with any it overlaps or nearly touches, so what is left is
+ * a handful of separate areas rather than one box per entity. Once there are more than a set number
+ * the two whose union wastes the least area are merged, so a frame never has to deal
+ * with more than that many. Rectangles are kept in preallocated objects and nothing is
+ * allocated once the set is created.
+ */
+public class DamageRegions {
+    // Regions closer than this are merged; painting the gap costs less than another region
+    private static final int GAP = 16;
+    private final int width, height;
+    private final Rectangle[] regions;
+    private int count;
+    private final Rectangle scratch = new Rectangle();
+
+    /**
+     * Creates an empty set for a screen of the given size.
+     *
+     * @param width   width of the screen; nothing outside it is kept
+     * @param height  height of the screen
+     * @param regions most rectangles to keep apart
+     */
+    public DamageRegions(int width, int height, int regions) {
+        this.width = width;
+        this.height = height;
+        this.regions = new Rectangle[regions + 1];
+        for (int i = 0; i < this.regions.length; i++) {
+            this.regions[i] = new Rectangle();
+        }
+    }
+
+    /**
+     * Adds an area, clipped to the screen.
+     *
+     * @param x      left edge
+     * @param y      top edge
+     * @param width  width of the area
+     * @param height height of the area
+     */
+    public void add(int x, int y, int width, int height) {
+        int left = Math.max(0, x), top = Math.max(0, y);
+        int right = Math.min(this.width, x + width), bottom = Math.min(this.height, y + height);
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        Rectangle added = scratch;
+        added.setBounds(left, top, right - left, bottom - top);
+        //Swallows every region the new one touches; growing may make it touch more
+        for (int i = 0; i < count; i++) {
+            if (touches(regions[i], added)) {
+                added.add(regions[i]);
+                remove(i);
+                i = -1;
+            }
+        }
+        regions[count++].setBounds(added);
+        if (count == regions.length) {
+            mergeCheapest();
+        }
+    }
+
+    /**
+     * Adds an area, clipped to the screen.
+     *
+     * @param area the area
+     */
+    public void add(Rectangle area) {
+        add(area.x, area.y, area.width, area.height);
+    }
+
+    /**
+     * Adds every region of another set.
+     *
+     * @param other regions to add
+     */
+    public void addAll(DamageRegions other) {
+        for (int i = 0; i < other.count; i++) {
+            add(other.regions[i]);
+        }
+    }
+
+    /**
+     * Marks the whole screen.
+     */
+    public void addScreen() {
+        add(0, 0, width, height);
+    }
+
+    /**
+     * Empties the set.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return number of separate regions
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i which region, below size()
+     * @return the region; it is reused, so it must not be modified or kept
+     */
+    public Rectangle get(int i) {
+        return regions[i];
+    }
+
+    /**
+     * @return pixels covered, over pixels on the screen
+     */
+    public double getCoverage() {
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            area += (long) regions[i].width * regions[i].height;
+        }
+        return (double) area / ((long) width * height);
+    }
+
+    /*
+     * Regions that overlap or nearly do are better painted as one.
+     */
+    private static boolean touches(Rectangle a, Rectangle b) {
+        return a.x <= b.x + b.width + GAP && b.x <= a.x + a.width + GAP
+                && a.y <= b.y + b.height + GAP && b.y <= a.y + a.height + GAP;
+    }
+
+    private void remove(int i) {
+        Rectangle removed = regions[i];
+        regions[i] = regions[--count];
+        regions[count] = removed;
+    }
+
+    /*
+     * Merges the two regions whose bounding box adds the least area they don't already
+     * cover. The merged box may now touch others, so it is added again.
+     */
+    private void mergeCheapest() {
+        long best = Long.MAX_VALUE;
+        int bestI = 0, bestJ = 1;
+        for (int i = 0; i < count; i++) {
+            Rectangle a = regions[i];
+            for (int j = i + 1; j < count; j++) {
+                Rectangle b = regions[j];
+                long w = Math.max(a.x + a.width, b.x + b.width) - Math.min(a.x, b.x);
+                long h = Math.max(a.y + a.height, b.y + b.height) - Math.min(a.y, b.y);
+                long waste = w * h - (long) a.width * a.height - (long) b.width * b.height;
+                if (waste < best) {
+                    best = waste;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+        }
+        Rectangle a = regions[bestI], b = regions[bestJ];
+        int x = Math.min(a.x, b.x), y = Math.min(a.y, b.y);
+        int w = Math.max(a.x + a.width, b.x + b.width) - x, h = Math.max(a.y + a.height, b.y + b.height) - y;
+        //Remove the later one first so the earlier index stays valid
+        remove(bestJ);
+        remove(bestI);
+        add(x, y, w, h);
+    }
+}
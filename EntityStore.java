@@ -0,0 +1,277 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * EntityStore keeps the physical state of many moving bodies in parallel primitive
+ * arrays (structure of arrays) instead of one object per body, so per-tick updates are
+ * straight loops over contiguous memory that the JIT can unroll and vectorize.
+ * Entity i is described by x[i], y[i], vx[i], ... for i below size().
+ * <p>
+ * Removal swaps the last entity into the freed slot, so it is O(1) but does not keep
+ * order. Each slot may also carry an owner object that moves along with it.
+ * <p>
+ * A store can be made fixed-capacity, in which case it works as a pool: slots are
+ * recycled and add() refuses new entities once every slot is in use.
+ */
+public class EntityStore {
+    double[] x, y;         // Position
+    double[] previousX, previousY; // Position as of the last tick
+    double[] vx, vy;       // Velocity
+    double[] dx, dy;       // Unit heading, cached from rotation
+    float[] rotation;      // Degrees, zero is due east
+    float[] radius;
+    int[] life;            // Ticks left to live, for entities that expire
+    int[] tag;             // Free for the store's user, e.g. an id or who fired a bullet
+    private Object[] owner;
+    private int count;
+    private final boolean growable;
+
+    /**
+     * Creates an empty store that grows as needed.
+     *
+     * @param capacity number of entities to make room for up front
+     */
+    public EntityStore(int capacity) {
+        this(capacity, true);
+    }
+
+    /**
+     * Creates an empty store.
+     *
+     * @param capacity number of entities to make room for up front
+     * @param growable false to never hold more than capacity entities
+     */
+    public EntityStore(int capacity, boolean growable) {
+        this.growable = growable;
+        capacity = Math.max(1, capacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        previousX = new double[capacity];
+        previousY = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        rotation = new float[capacity];
+        radius = new float[capacity];
+        life = new int[capacity];
+        tag = new int[capacity];
+        owner = new Object[capacity];
+    }
+
+    /**
+     * Adds an entity at rest.
+     *
+     * @param x        x coordinate of the entity
+     * @param y        y coordinate of the entity
+     * @param rotation heading in degrees
+     * @param radius   size of the entity
+     * @param owner    object to keep alongside the entity, may be null
+     * @return the new entity's index, or -1 if the store is full and cannot grow
+     */
+    public int add(double x, double y, double rotation, double radius, Object owner) {
+        if (count == this.x.length) {
+            if (!growable) {
+                return -1;
+            }
+            grow(count * 2);
+        }
+        int i = count++;
+        this.x[i] = this.previousX[i] = x;
+        this.y[i] = this.previousY[i] = y;
+        vx[i] = 0;
+        vy[i] = 0;
+        setRotation(i, rotation);
+        this.radius[i] = (float) radius;
+        life[i] = Integer.MAX_VALUE;
+        tag[i] = 0;
+        this.owner[i] = owner;
+        return i;
+    }
+
+    /**
+     * Removes an entity by moving the last entity into its slot.
+     *
+     * @param i index of the entity to remove
+     */
+    public void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        previousX[i] = previousX[last];
+        previousY[i] = previousY[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        dx[i] = dx[last];
+        dy[i] = dy[last];
+        rotation[i] = rotation[last];
+        radius[i] = radius[last];
+        life[i] = life[last];
+        tag[i] = tag[last];
+        owner[i] = owner[last];
+        owner[last] = null;
+    }
+
+    /**
+     * Removes every entity.
+     */
+    public void clear() {
+        Arrays.fill(owner, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Turns an entity to face a new heading.
+     *
+     * @param i       index of the entity
+     * @param degrees new heading in degrees
+     */
+    public void setRotation(int i, double degrees) {
+        rotation[i] = (float) degrees;
+        dx[i] = Trig.cos(degrees);
+        dy[i] = Trig.sin(degrees);
+    }
+
+    // Bytes write() uses per entity
+    static final int RECORD = 8 * 8 + 4 + 4 + 4 + 4;
+
+    /**
+     * Writes every entity's state, but not the owners, to a buffer: the count, then
+     * one RECORD sized record per entity.
+     *
+     * @param out buffer with at least 4 + size() * RECORD bytes remaining
+     */
+    public void write(ByteBuffer out) {
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putDouble(x[i]).putDouble(y[i]).putDouble(previousX[i]).putDouble(previousY[i])
+                    .putDouble(vx[i]).putDouble(vy[i]).putDouble(dx[i]).putDouble(dy[i])
+                    .putFloat(rotation[i]).putFloat(radius[i]).putInt(life[i]).putInt(tag[i]);
+        }
+    }
+
+    /**
+     * Replaces every entity with those read from a buffer written by write(). Owners of
+     * slots that are still in use are left alone for the caller to check or replace;
+     * slots no longer in use lose theirs.
+     *
+     * @param in buffer positioned where write() started
+     * @throws IllegalArgumentException if the store can't grow to hold them all
+     */
+    public void read(ByteBuffer in) {
+        int n = in.getInt();
+        if (n > x.length) {
+            if (!growable) {
+                throw new IllegalArgumentException(n + " entities don't fit in " + x.length + " slots");
+            }
+            grow(Math.max(n, x.length * 2));
+        }
+        if (n < count) {
+            Arrays.fill(owner, n, count, null);
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = in.getDouble();
+            y[i] = in.getDouble();
+            previousX[i] = in.getDouble();
+            previousY[i] = in.getDouble();
+            vx[i] = in.getDouble();
+            vy[i] = in.getDouble();
+            dx[i] = in.getDouble();
+            dy[i] = in.getDouble();
+            rotation[i] = in.getFloat();
+            radius[i] = in.getFloat();
+            life[i] = in.getInt();
+            tag[i] = in.getInt();
+        }
+        count = n;
+    }
+
+    /**
+     * Sets the object kept alongside an entity.
+     *
+     * @param i     index of the entity
+     * @param owner the new owner, may be null
+     */
+    public void setOwner(int i, Object owner) {
+        this.owner[i] = owner;
+    }
+
+    /**
+     * Copies every position into previousX/previousY, for interpolated drawing.
+     */
+    public void savePrevious() {
+        System.arraycopy(x, 0, previousX, 0, count);
+        System.arraycopy(y, 0, previousY, 0, count);
+    }
+
+    /**
+     * Moves every entity that left the world back in on the opposite side,
+     * the same way Ship.update wraps.
+     *
+     * @param width  width of the world
+     * @param height height of the world
+     */
+    public void wrap(double width, double height) {
+        wrap(width, height, 0, count);
+    }
+
+    /**
+     * Wraps the entities from index from up to (not including) to, like wrap(width, height).
+     *
+     * @param width  width of the world
+     * @param height height of the world
+     * @param from   first entity to wrap
+     * @param to     one past the last entity to wrap
+     */
+    public void wrap(double width, double height, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double px = x[i], py = y[i];
+            x[i] = px > width ? 0 : px < 0 ? width : px;
+            y[i] = py > height ? 0 : py < 0 ? height : py;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T owner(int i) {
+        return (T) owner[i];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return how many entities fit before the store has to grow
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Makes room for at least the given number of entities, so adding up to that many
+     * never has to grow the store.
+     *
+     * @param capacity number of entities to make room for
+     */
+    public void reserve(int capacity) {
+        if (x.length < capacity) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        life = Arrays.copyOf(life, capacity);
+        tag = Arrays.copyOf(tag, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+    }
+}
@@ -3,22 +3,47 @@ import java.awt.*;
 import java.awt.event.*;
 
 /**
- * Game is an abstract class that provides a painted canvas in its own window, updated 30 times per second.
+ * Game is an abstract class that provides a painted canvas in its own window, repainted FRAME_RATE times
+ * per second. The simulation itself runs separately, see GameLoop.
+ * <p>
+ * By default frames are painted passively: a Swing Timer asks for a repaint and Swing calls paintComponent
+ * on the event thread. Starting with -Dasteroids.render=active switches to active rendering instead, where
+ * an ActiveRenderer thread draws straight into a Canvas's BufferStrategy (see BUFFERS and PACED).
+ * With -Dasteroids.render=dirty frames are still painted passively, but a subclass may override
+ * repaintFrame() to ask for just the parts of the window that changed, keeping the rest in buffer.
+ * The window can be resized; width and height are only the size it starts at, and getSurface()
+ * always has the size it is now.
  * NOTE: You don't need to understand the details here. DO NOT EDIT THIS CLASS!
  */
 public abstract class Game extends JPanel {
 
-    // Delay is in milliseconds, 1000/30 is about 30 times a second
-    public static final int DELAY = 1000 / 30;
-    protected int width, height;
-    protected Image buffer;
+    // Frames per second to repaint at, override with -Dasteroids.fps=...
+    public static final int FRAME_RATE = Integer.getInteger("asteroids.fps", 120);
+    // Delay is in milliseconds, 1000/120 is about 120 times a second
+    public static final int DELAY = Math.max(1, 1000 / FRAME_RATE);
+    // Whether to draw from a render thread into a BufferStrategy, -Dasteroids.render=active
+    public static final boolean ACTIVE = "active".equals(System.getProperty("asteroids.render"));
+    // Whether to repaint only what changed since the last frame, -Dasteroids.render=dirty
+    public static final boolean DIRTY = "dirty".equals(System.getProperty("asteroids.render"));
+    // Buffers to flip between when rendering actively, -Dasteroids.buffers=2 or 3
+    public static final int BUFFERS = Integer.getInteger("asteroids.buffers", 2);
+    // Whether active rendering is held to FRAME_RATE, -Dasteroids.paced=false to draw flat out
+    public static final boolean PACED = !"false".equals(System.getProperty("asteroids.paced"));
+    protected int width, height;    // Size of the window's drawing area
+    protected Image buffer;         // Persistent back buffer, for painting only what changed
+    // Times each phase of every tick and frame
+    protected final Profiler profiler = new Profiler();
+    // Counts the bytes each phase of every tick and frame allocates
+    protected final AllocationTracker allocations = new AllocationTracker();
+    private Canvas canvas;
+    private ActiveRenderer renderer;
 
     /**
      * The constructor for Game initializes the window
      *
      * @param name   is the name that will be displayed in the window title bar
-     * @param width  is the width of the window in pixels
-     * @param height is the height of the window in pixels
+     * @param width  is the width of the window's drawing area in pixels
+     * @param height is the height of the window's drawing area in pixels
      */
     public Game(String name, int width, int height) {
         this.width = width;
@@ -26,34 +51,73 @@ public abstract class Game extends JPanel {
 
         // A JFrame is a window object.
         JFrame frame = new JFrame(name);
-        frame.add(this);
-        frame.setSize(width, height);
-        frame.setVisible(true);
+        if (ACTIVE) {
+            canvas = new Canvas();
+            frame.add(canvas);
+        } else {
+            frame.add(this);
+        }
+        getSurface().setPreferredSize(new Dimension(width, height));
+        frame.pack();
         frame.setLocationRelativeTo(null);
-        frame.setResizable(false);
+        frame.setVisible(true);
 
         // Needed to make key listeners work
-        setFocusable(true);
-        requestFocusInWindow();
+        getSurface().setFocusable(true);
+        getSurface().requestFocusInWindow();
 
         buffer = createImage(width, height);
-        Timer timer = new Timer(DELAY, e -> repaint());
+        Timer timer = new Timer(DELAY, e -> repaintFrame());
 
         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         frame.addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
                 timer.stop();
+                if (renderer != null) {
+                    renderer.stop();
+                }
+                stop();
                 frame.dispose();
             }
         });
 
-        timer.start();
+        if (ACTIVE) {
+            renderer = new ActiveRenderer(canvas, BUFFERS, FRAME_RATE, PACED, this::paintComponent, profiler);
+            renderer.start();
+        } else {
+            timer.start();
+        }
+    }
+
+    /**
+     * The component frames are shown on and key presses arrive at: this panel when
+     * rendering passively, or the canvas when rendering actively.
+     *
+     * @return the component on screen
+     */
+    protected Component getSurface() {
+        return ACTIVE ? canvas : this;
+    }
+
+    /**
+     * Asks for the next frame to be painted; called FRAME_RATE times per second on the
+     * event thread when rendering passively. Repaints the whole window unless overridden.
+     */
+    protected void repaintFrame() {
+        repaint();
+    }
+
+    /**
+     * Called once when the window is closed. Override to shut down anything
+     * the game started, such as its simulation thread.
+     */
+    protected void stop() {
     }
 
     /**
-     * A child class's paintComponent will be called 30 times per second
-     * to update and redraw the game.
+     * A child class's paintComponent will be called FRAME_RATE times per second
+     * to redraw the game, on the event thread or on the render thread.
      */
     @Override
     abstract public void paintComponent(Graphics brush);
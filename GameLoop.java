@@ -0,0 +1,100 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop runs the simulation on its own thread at a fixed tick rate, independent
+ * of how often the screen is repainted. Time that elapses between iterations is
+ * collected in an accumulator and paid out in whole ticks; if the thread falls far
+ * behind (a long GC pause, a suspended laptop) the accumulator is capped so the
+ * game slows down instead of spiralling into ever longer catch-up bursts.
+ */
+public class GameLoop implements Runnable {
+    // Simulation steps per second, override with -Dasteroids.tps=...
+    public static final int TICK_RATE = Integer.getInteger("asteroids.tps", 30);
+    // Most ticks the simulation may run back to back after a stall
+    public static final int MAX_CATCH_UP = 5;
+
+    private final long step;        // Nanoseconds per tick
+    private final int maxCatchUp;   // Most ticks that may run back to back
+    private final Runnable tick;
+
+    private volatile boolean running;
+    private volatile long lastTick; // Time the most recent tick represents
+    private long tickTime;          // Time the running tick represents, for the simulation thread
+    private Thread thread;
+
+    /**
+     * Creates a loop that calls tick a fixed number of times per second.
+     *
+     * @param ticksPerSecond simulation rate
+     * @param maxCatchUp     maximum number of ticks run to catch up after a stall
+     * @param tick           advances the simulation by one step
+     */
+    public GameLoop(int ticksPerSecond, int maxCatchUp, Runnable tick) {
+        this.step = 1_000_000_000L / ticksPerSecond;
+        this.maxCatchUp = maxCatchUp;
+        this.tick = tick;
+    }
+
+    /**
+     * Starts the simulation thread.
+     */
+    public void start() {
+        running = true;
+        lastTick = System.nanoTime();
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation thread after its current tick.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * How far the current moment is between the last tick and the next one.
+     * Renderers use this to blend the previous and current simulation states.
+     *
+     * @return fraction of a tick in the range 0-1
+     */
+    public double getAlpha() {
+        double alpha = (double) (System.nanoTime() - lastTick) / step;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    /**
+     * The moment the tick now running stands for. Ticks run back to back after a stall
+     * each stand for a later moment, a step apart, even though they run at once. Only
+     * meaningful on the simulation thread, from inside a tick.
+     *
+     * @return System.nanoTime() the tick has caught up to
+     */
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (running) {
+            long now = System.nanoTime();
+            accumulator = Math.min(accumulator + now - previous, step * maxCatchUp);
+            previous = now;
+
+            while (accumulator >= step && running) {
+                tickTime = now - accumulator + step;
+                tick.run();
+                accumulator -= step;
+            }
+            lastTick = now - accumulator;
+
+            LockSupport.parkNanos(step - accumulator);
+        }
+    }
+}
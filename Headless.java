@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Headless runs the game with no window, as fast as the CPU allows. It is meant for
+ * soak tests, balancing runs and performance checks on machines without a display.
+ * The ship spins and fires constantly; whenever it dies or clears the field a new game
+ * starts from the same seed, so the run is fully determined by its arguments.
+ * <p>
+ * Usage: java Headless [ticks] [seed] [asteroids]
+ * <p>
+ * With -Dasteroids.profile=file.csv (or .json) every tick is timed phase by phase and
+ * the histograms are written to that file at the end.
+ * <p>
+ * With -Dasteroids.allocationBudget=bytes the run becomes a test: after the first tenth
+ * of the ticks (the warm-up) the bytes allocated per tick are counted, and the process
+ * exits with status 1 if the steady-state average or any single tick exceeds the budget.
+ * <p>
+ * With -Dasteroids.checkpoint=file.snap the world is saved to that file every
+ * -Dasteroids.checkpointEvery ticks (default 100000) and at the end, and with
+ * -Dasteroids.resume=file.snap a run carries on from a saved world instead of a new
+ * one, ignoring the seed and asteroids arguments.
+ * <p>
+ * With -Dasteroids.threads=n each tick is spread over n threads. The hash printed at
+ * the end is the same for any n.
+ */
+public class Headless {
+    // What the ship does every tick
+    private static final int CONTROLS = World.LEFT | World.FIRE;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int asteroids = args.length > 2 ? Integer.parseInt(args[2]) : World.ASTEROIDS;
+
+        String resume = System.getProperty("asteroids.resume");
+        String checkpoint = System.getProperty("asteroids.checkpoint");
+        long checkpointEvery = Long.getLong("asteroids.checkpointEvery", 100_000);
+        World world;
+        Snapshot snapshot;
+        if (resume != null) {
+            snapshot = Snapshot.read(Paths.get(resume));
+            world = new World(snapshot.getSeed(), snapshot.getAsteroidCount(), snapshot.getMaxBullets(),
+                    snapshot.getPlayers(), snapshot.getWidth(), snapshot.getHeight());
+            snapshot.restore(world);
+        } else {
+            world = new World(seed, asteroids);
+            snapshot = new Snapshot(world.snapshotSize());
+        }
+        world.setParallelism(Integer.getInteger("asteroids.threads", 1));
+        String profile = System.getProperty("asteroids.profile");
+        Profiler profiler = profile != null ? new Profiler() : Profiler.OFF;
+        world.setProfiler(profiler);
+        Long budget = Long.getLong("asteroids.allocationBudget");
+        AllocationTracker allocations = budget != null ? new AllocationTracker() : AllocationTracker.OFF;
+        world.setAllocationTracker(allocations);
+        long warmUp = ticks / 10;
+        long games = 1;
+        long best = 0;
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            if (world.isGameOver() || world.getAsteroids().size() == 0) {
+                best = Math.max(best, world.getScore());
+                world.reset();
+                games++;
+            }
+            if (t == warmUp) {
+                allocations.reset();
+            }
+            world.tick(CONTROLS);
+            if (checkpoint != null && (t + 1) % checkpointEvery == 0) {
+                snapshot.capture(world);
+                snapshot.write(Paths.get(checkpoint));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("ticks      %d%n", ticks);
+        System.out.printf("games      %d%n", games);
+        System.out.printf("best score %d%n", Math.max(best, world.getScore()));
+        System.out.printf("ticks/sec  %.0f%n", ticks / seconds);
+        System.out.printf("hash       %016x%n", world.hash());
+        if (checkpoint != null) {
+            snapshot.capture(world);
+            snapshot.write(Paths.get(checkpoint));
+        }
+        if (profile != null) {
+            for (String line : profiler.summary()) {
+                System.out.println(line);
+            }
+            profiler.write(Paths.get(profile));
+        }
+        if (budget != null) {
+            double mean = allocations.getMean(Profiler.Phase.TICK);
+            long worst = allocations.getMax(Profiler.Phase.TICK);
+            System.out.printf("bytes/tick %.1f mean, %d max, budget %d%n", mean, worst, budget);
+            if (mean > budget || worst > budget) {
+                System.out.println("FAILED: allocation budget exceeded");
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InProcessTransport passes packets between ends in the same JVM through queues, with
+ * no sockets involved. Every end joined to the same Network can reach every other.
+ * It is meant for running a server and many clients in one process for testing.
+ */
+public class InProcessTransport implements Transport {
+
+    /**
+     * A set of ends that can send to each other.
+     */
+    public static class Network {
+        private final Map<SocketAddress, InProcessTransport> ends = new ConcurrentHashMap<>();
+        private final AtomicInteger nextPort = new AtomicInteger(1);
+    }
+
+    private static class Packet {
+        final SocketAddress from;
+        final byte[] data;
+
+        Packet(SocketAddress from, byte[] data) {
+            this.from = from;
+            this.data = data;
+        }
+    }
+
+    private final Network network;
+    private final SocketAddress address;
+    private final Queue<Packet> inbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Joins a network under a new address.
+     *
+     * @param network the network to join
+     */
+    public InProcessTransport(Network network) {
+        this.network = network;
+        this.address = InetSocketAddress.createUnresolved("in-process", network.nextPort.getAndIncrement());
+        network.ends.put(address, this);
+    }
+
+    @Override
+    public void send(ByteBuffer packet, SocketAddress to) {
+        InProcessTransport end = network.ends.get(to);
+        byte[] data = new byte[packet.remaining()];
+        packet.get(data);
+        if (end != null) {
+            end.inbox.add(new Packet(address, data));
+        }
+    }
+
+    @Override
+    public SocketAddress receive(ByteBuffer into) {
+        Packet packet = inbox.poll();
+        if (packet == null) {
+            return null;
+        }
+        into.put(packet.data, 0, Math.min(packet.data.length, into.remaining()));
+        return packet.from;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return address;
+    }
+
+    @Override
+    public void close() {
+        network.ends.remove(address);
+    }
+}
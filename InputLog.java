@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputLog reads a file written by InputRecorder. The file is memory-mapped, so
+ * reading the controls for a tick is a single byte load however long the log is.
+ */
+public class InputLog {
+    private final ByteBuffer data;
+    private final long seed;
+    private final int asteroidCount;
+    private final long ticks;
+    private final long hash;
+
+    /**
+     * Maps a log file.
+     *
+     * @param file log written by InputRecorder
+     * @throws IOException if the file can't be read or isn't a log
+     */
+    public InputLog(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data = mapped.order(InputRecorder.ORDER);
+        if (data.limit() < InputRecorder.HEADER || data.getInt(0) != InputRecorder.MAGIC) {
+            throw new IOException(file + " is not an input log");
+        }
+        int version = data.getInt(4);
+        if (version != InputRecorder.VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        seed = data.getLong(8);
+        asteroidCount = data.getInt(16);
+        long recorded = data.getLong(20);
+        hash = data.getLong(28);
+        // A log that was never closed has no tick count; trust the file length instead
+        long available = data.limit() - InputRecorder.HEADER;
+        ticks = recorded == 0 ? available : Math.min(recorded, available);
+    }
+
+    /**
+     * @param tick tick number, from 0 to getTicks() - 1
+     * @return the control bits recorded for that tick
+     */
+    public int controls(long tick) {
+        return data.get(InputRecorder.HEADER + (int) tick);
+    }
+
+    public long getSeed() { return seed; }
+
+    public int getAsteroidCount() { return asteroidCount; }
+
+    public long getTicks() { return ticks; }
+
+    /**
+     * @return World.hash() at the end of the recording, or 0 if it wasn't stored
+     */
+    public long getHash() { return hash; }
+}
@@ -0,0 +1,108 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InputQueue hands key events from the event dispatch thread to the simulation thread.
+ * It is a bounded ring buffer for exactly one producer and one consumer, so neither side
+ * ever takes a lock: the producer only advances the tail and the consumer only the head,
+ * each publishing with a release store that the other side reads. Each side also keeps
+ * its own copy of the other's position and only rereads it when the ring looks full or
+ * empty, so most calls touch no shared counter at all.
+ * <p>
+ * An event is a key code, whether it was pressed or released, and the System.nanoTime()
+ * it happened at. When the ring is full new events are dropped and counted; at a few
+ * hundred slots that only happens if the simulation has stopped draining it.
+ */
+public class InputQueue {
+    private final long[] time;
+    private final int[] event;      // Key code << 1 | 1 if pressed
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();   // Next event to take, written by the consumer
+    private final AtomicLong tail = new AtomicLong();   // Next free slot, written by the producer
+    private long headCache;         // Producer's last look at head
+    private long tailCache;         // Consumer's last look at tail
+    private volatile long dropped;
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity most events held at once, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        time = new long[size];
+        event = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an event. Only call from the producing thread.
+     *
+     * @param keyCode key, as in KeyEvent.getKeyCode()
+     * @param pressed true if the key went down, false if it came up
+     * @param when    System.nanoTime() of the event
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(int keyCode, boolean pressed, long when) {
+        long t = tail.get();
+        if (t - headCache == time.length) {
+            headCache = head.get();
+            if (t - headCache == time.length) {
+                dropped++;
+                return false;
+            }
+        }
+        int i = (int) t & mask;
+        time[i] = when;
+        event[i] = keyCode << 1 | (pressed ? 1 : 0);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest event if it happened no later than a given time. Only call from
+     * the consuming thread. Use keyCode() and pressed() to read what was taken.
+     *
+     * @param until latest System.nanoTime() an event may have to be taken
+     * @return the event, or -1 if there is none old enough
+     */
+    public int poll(long until) {
+        long h = head.get();
+        if (h == tailCache) {
+            tailCache = tail.get();
+            if (h == tailCache) {
+                return -1;
+            }
+        }
+        int i = (int) h & mask;
+        if (time[i] - until > 0) {
+            return -1;
+        }
+        int e = event[i];
+        head.lazySet(h + 1);
+        return e;
+    }
+
+    /**
+     * @param event an event returned by poll()
+     * @return its key code
+     */
+    public static int keyCode(int event) {
+        return event >>> 1;
+    }
+
+    /**
+     * @param event an event returned by poll()
+     * @return true if the key went down, false if it came up
+     */
+    public static boolean pressed(int event) {
+        return (event & 1) != 0;
+    }
+
+    /**
+     * @return number of events dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
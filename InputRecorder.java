@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputRecorder writes the controls of every tick of a game to a compact binary log,
+ * one byte per tick, so the game can be played back exactly by InputLog and Replay.
+ * Bytes are collected in a direct buffer and written through a FileChannel a block
+ * at a time.
+ * <p>
+ * The file starts with a fixed header: the magic number, the format version, the
+ * world's seed and asteroid count, and then the tick count and final World.hash(),
+ * which are filled in by close(). The controls follow the header.
+ */
+public class InputRecorder implements Closeable {
+    static final int MAGIC = 0x41535452; // "ASTR"
+    // Bumped whenever the simulation changes so that old logs would play out differently
+    static final int VERSION = 4;
+    // Magic, version, seed, asteroid count, ticks, hash
+    static final int HEADER = 4 + 4 + 8 + 4 + 8 + 8;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192).order(ORDER);
+    private final long seed;
+    private final int asteroidCount;
+    private long ticks;
+
+    /**
+     * Creates or truncates a log file and writes its header.
+     *
+     * @param file          where to write
+     * @param seed          seed of the world being recorded
+     * @param asteroidCount asteroids the world started with
+     * @throws IOException if the file can't be written
+     */
+    public InputRecorder(Path file, long seed, int asteroidCount) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.seed = seed;
+        this.asteroidCount = asteroidCount;
+        writeHeader(0);
+    }
+
+    /**
+     * Records the controls passed to one World.tick() call.
+     *
+     * @param controls the control bits
+     * @throws IOException if the buffer had to be written and that failed
+     */
+    public void record(int controls) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) controls);
+        ticks++;
+    }
+
+    /**
+     * @return number of ticks recorded so far
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Writes out what is buffered, stamps the header with the tick count and the final
+     * state of the world, and closes the file.
+     *
+     * @param hash World.hash() after the last recorded tick
+     * @throws IOException if the file can't be written
+     */
+    public void close(long hash) throws IOException {
+        try {
+            flush();
+            writeHeader(hash);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes the file without a final hash. Replay will then only re-simulate the log.
+     */
+    @Override
+    public void close() throws IOException {
+        close(0);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader(long hash) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(seed).putInt(asteroidCount).putLong(ticks).putLong(hash);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        if (channel.position() < HEADER) {
+            channel.position(HEADER);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts durations in a fixed set of buckets, so recording never
+ * allocates and the memory used never grows. Buckets are log-linear: every power of
+ * two is split into 32 equal steps, which keeps every reported value within about 3%
+ * of the true one from nanoseconds up to several minutes. Recording is lock-free, so
+ * any thread may record while another reads percentiles.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;                    // 32 steps per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BITS = 40;                   // Values up to about 18 minutes
+    private static final int BUCKETS = (MAX_BITS - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds one duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long previous;
+        while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+            // Another thread raised the max first, try again against its value
+        }
+    }
+
+    /**
+     * Finds the duration that the given fraction of recorded durations are at or below.
+     *
+     * @param fraction between 0 and 1, for example 0.99 for the 99th percentile
+     * @return the duration in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long percentile(double fraction) {
+        long recorded = count.get();
+        if (recorded == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highest(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the average duration in nanoseconds, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double) total.get() / recorded;
+    }
+
+    /**
+     * Adds everything another histogram has recorded, as if it had been recorded here.
+     *
+     * @param other histogram to add; it is left as it was
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        long theirs = other.max.get(), previous;
+        while (theirs > (previous = max.get()) && !max.compareAndSet(previous, theirs)) {
+            // Another thread raised the max first, try again against its value
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /*
+     * Finds which bucket a value is counted in.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_BITS) - SUB_BITS;
+        int sub = (int) Math.min(value >>> shift, 2 * SUB_BUCKETS - 1) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /*
+     * The largest value counted in a bucket.
+     */
+    private static long highest(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
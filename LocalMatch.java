@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+/**
+ * LocalMatch runs a Server and a crowd of bot Clients in one process and reports what
+ * the match costs: server time per tick, and bytes per tick each way. The bots turn,
+ * thrust and fire in patterns of their own. Ticks run back to back rather than in real
+ * time, with the clients and server taking turns as they would over a fast network.
+ * <p>
+ * Usage: java LocalMatch [clients] [ticks] [asteroids] [memory|udp]
+ * <p>
+ * "memory" passes packets through an InProcessTransport; "udp" sends real datagrams
+ * over the loopback interface. -Dasteroids.snapshotRate=n sets snapshots per second.
+ */
+public class LocalMatch {
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 3000;
+        int asteroids = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        boolean udp = args.length > 3 && args[3].equals("udp");
+        int tickRate = GameLoop.TICK_RATE;
+        int snapshotRate = Integer.getInteger("asteroids.snapshotRate", tickRate);
+
+        InProcessTransport.Network network = new InProcessTransport.Network();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        Transport serverTransport = udp ? new UdpTransport(new InetSocketAddress(loopback, 0))
+                : new InProcessTransport(network);
+        World world = new World(1, asteroids, World.MAX_BULLETS, clients);
+        Server server = new Server(serverTransport, world, tickRate, snapshotRate);
+
+        // Clients wait for WELCOME while joining, so the server ticks on another thread meanwhile
+        Thread joining = new Thread(() -> {
+            try {
+                while (server.getPlayers() < clients) {
+                    server.tick();
+                    Thread.sleep(1);
+                }
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        joining.start();
+        Client[] bots = new Client[clients];
+        for (int i = 0; i < clients; i++) {
+            Transport transport = udp ? new UdpTransport(new InetSocketAddress(loopback, 0))
+                    : new InProcessTransport(network);
+            bots[i] = Client.connect(transport, serverTransport.getLocalAddress(), 5000);
+        }
+        try {
+            joining.join();
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        long sentBefore = server.getBytesSent(), receivedBefore = server.getBytesReceived();
+        LatencyHistogram serverTick = new LatencyHistogram();
+        for (long t = 0; t < ticks; t++) {
+            for (int i = 0; i < clients; i++) {
+                bots[i].tick(controls(i, t));
+            }
+            long start = System.nanoTime();
+            server.tick();
+            serverTick.record(System.nanoTime() - start);
+        }
+        double down = (server.getBytesSent() - sentBefore) / (double) ticks / clients;
+        double up = (server.getBytesReceived() - receivedBefore) / (double) ticks / clients;
+        long corrections = 0;
+        double correction = 0;
+        for (Client bot : bots) {
+            corrections += bot.getCorrections();
+            correction += bot.getMeanCorrection() * bot.getCorrections();
+            bot.close();
+        }
+        serverTransport.close();
+
+        System.out.printf(Locale.ROOT, "clients        %d over %s, %d snapshots/sec%n", clients, udp ? "udp" : "memory",
+                tickRate / Math.max(1, tickRate / Math.max(1, snapshotRate)));
+        System.out.printf(Locale.ROOT, "asteroids      %d at start, %d at end%n", asteroids, world.getAsteroids().size());
+        System.out.printf(Locale.ROOT, "server tick    %.3f ms p50, %.3f ms p99, %.3f ms max%n",
+                serverTick.percentile(0.5) / 1e6, serverTick.percentile(0.99) / 1e6, serverTick.getMax() / 1e6);
+        System.out.printf(Locale.ROOT, "down/client    %.0f bytes/tick, %.1f KB/s%n", down, down * tickRate / 1024);
+        System.out.printf(Locale.ROOT, "up/client      %.0f bytes/tick, %.1f KB/s%n", up, up * tickRate / 1024);
+        System.out.printf(Locale.ROOT, "snapshots      %d full, %d delta%n", server.getFullSnapshots(), server.getDeltaSnapshots());
+        System.out.printf(Locale.ROOT, "corrections    %d, %.2f px mean%n", corrections,
+                corrections == 0 ? 0 : correction / corrections);
+    }
+
+    /*
+     * What bot i does on tick t: turns one way or the other, thrusts now and then,
+     * and fires every few ticks.
+     */
+    private static int controls(int i, long t) {
+        int controls = i % 2 == 0 ? World.LEFT : World.RIGHT;
+        if ((t / 20 + i) % 3 == 0) {
+            controls |= World.THRUST;
+        }
+        if ((t + i) % 5 == 0) {
+            controls |= World.FIRE;
+        }
+        return controls;
+    }
+}
@@ -0,0 +1,245 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * NetState is the part of a World that clients see, quantized for sending: every
+ * ship, every asteroid by its id, and every bullet, with positions and angles cut
+ * down to 16 bits. The server captures one per snapshot; a client rebuilds them.
+ * <p>
+ * write() sends a state as a delta against a baseline the receiver already has. Only
+ * asteroids that appeared, vanished or moved are listed, with their moves as small
+ * signed numbers, so a typical asteroid costs three or four bytes. Ships and bullets
+ * are few and short-lived, and are always sent whole. An empty baseline gives a full
+ * state.
+ */
+public class NetState {
+    // What changed about an asteroid since the baseline
+    private static final int REMOVED = 1, FULL = 2, MOVED_X = 4, MOVED_Y = 8, TURNED = 16;
+    private static final int ALIVE = 1, THRUST = 2;
+
+    // A state with nothing in it, the baseline for full snapshots
+    public static final NetState EMPTY = new NetState();
+
+    int seq = -1;        // Snapshot number, -1 if nothing has been captured or read
+    long tick;
+
+    int players;
+    boolean[] alive = new boolean[0], thrust = new boolean[0];
+    int[] shipX = new int[0], shipY = new int[0], shipRotation = new int[0], score = new int[0];
+
+    int ids;             // One more than the largest asteroid id
+    boolean[] present = new boolean[0];
+    int[] template = new int[0], x = new int[0], y = new int[0], rotation = new int[0];
+
+    int bullets;
+    int[] bulletX = new int[0], bulletY = new int[0];
+
+    /**
+     * Takes the quantized state of a world.
+     *
+     * @param world   the world to capture
+     * @param catalog catalog the world's asteroid outlines come from
+     * @param seq     number to give the snapshot
+     */
+    public void capture(World world, ShapeCatalog catalog, int seq) {
+        this.seq = seq;
+        tick = world.getTicks();
+
+        double scale = Protocol.positionScale(world.getWidth(), world.getHeight());
+        setPlayers(world.getPlayers());
+        for (int p = 0; p < players; p++) {
+            Ship ship = world.getShip(p);
+            alive[p] = world.isAlive(p);
+            thrust[p] = ship.isThrusting();
+            shipX[p] = Protocol.quantizePosition(ship.getX(), scale);
+            shipY[p] = Protocol.quantizePosition(ship.getY(), scale);
+            shipRotation[p] = Protocol.quantizeAngle(ship.getRotation());
+            score[p] = world.getScore(p);
+        }
+
+        EntityStore store = world.getAsteroids();
+        int largest = -1;
+        for (int i = 0; i < store.size(); i++) {
+            largest = Math.max(largest, store.tag[i]);
+        }
+        setIds(largest + 1);
+        Arrays.fill(present, 0, ids, false);
+        for (int i = 0; i < store.size(); i++) {
+            int id = store.tag[i];
+            Asteroid asteroid = store.owner(i);
+            present[id] = true;
+            template[id] = catalog.id(asteroid.getTemplate());
+            x[id] = Protocol.quantizePosition(store.x[i], scale);
+            y[id] = Protocol.quantizePosition(store.y[i], scale);
+            rotation[id] = Protocol.quantizeAngle(asteroid.getRotation());
+        }
+
+        store = world.getBullets();
+        setBullets(store.size());
+        for (int i = 0; i < bullets; i++) {
+            bulletX[i] = Protocol.quantizePosition(store.x[i], scale);
+            bulletY[i] = Protocol.quantizePosition(store.y[i], scale);
+        }
+    }
+
+    /**
+     * Writes this state as changes from a baseline.
+     *
+     * @param out  where to write
+     * @param base a state the receiver has, or EMPTY
+     */
+    public void write(ByteBuffer out, NetState base) {
+        out.putLong(tick);
+
+        Protocol.putVarInt(out, players);
+        for (int p = 0; p < players; p++) {
+            out.put((byte) ((alive[p] ? ALIVE : 0) | (thrust[p] ? THRUST : 0)));
+            Protocol.putShort(out, shipX[p]);
+            Protocol.putShort(out, shipY[p]);
+            Protocol.putShort(out, shipRotation[p]);
+            Protocol.putVarInt(out, score[p]);
+        }
+
+        Protocol.putVarInt(out, ids);
+        int last = -1;
+        for (int id = 0, n = Math.max(ids, base.ids); id < n; id++) {
+            boolean now = id < ids && present[id];
+            boolean was = id < base.ids && base.present[id];
+            int flags;
+            if (!now && !was) {
+                continue;
+            } else if (!now) {
+                flags = REMOVED;
+            } else if (!was || base.template[id] != template[id]) {
+                flags = FULL;
+            } else {
+                flags = (x[id] != base.x[id] ? MOVED_X : 0) | (y[id] != base.y[id] ? MOVED_Y : 0)
+                        | (rotation[id] != base.rotation[id] ? TURNED : 0);
+                if (flags == 0) {
+                    continue;
+                }
+            }
+            Protocol.putVarInt(out, id - last);
+            last = id;
+            out.put((byte) flags);
+            if (flags == FULL) {
+                Protocol.putVarInt(out, template[id]);
+                Protocol.putShort(out, x[id]);
+                Protocol.putShort(out, y[id]);
+                Protocol.putShort(out, rotation[id]);
+            } else {
+                if ((flags & MOVED_X) != 0) {
+                    Protocol.putSignedVarInt(out, x[id] - base.x[id]);
+                }
+                if ((flags & MOVED_Y) != 0) {
+                    Protocol.putSignedVarInt(out, y[id] - base.y[id]);
+                }
+                if ((flags & TURNED) != 0) {
+                    Protocol.putSignedVarInt(out, rotation[id] - base.rotation[id]);
+                }
+            }
+        }
+        Protocol.putVarInt(out, 0);
+
+        Protocol.putVarInt(out, bullets);
+        for (int i = 0; i < bullets; i++) {
+            Protocol.putShort(out, bulletX[i]);
+            Protocol.putShort(out, bulletY[i]);
+        }
+    }
+
+    /**
+     * Reads a state written by write(), replacing this one.
+     *
+     * @param in   where to read from
+     * @param base the same baseline the sender used
+     * @param seq  number of the snapshot being read
+     */
+    public void read(ByteBuffer in, NetState base, int seq) {
+        this.seq = seq;
+        tick = in.getLong();
+
+        setPlayers(Protocol.getVarInt(in));
+        for (int p = 0; p < players; p++) {
+            int flags = in.get();
+            alive[p] = (flags & ALIVE) != 0;
+            thrust[p] = (flags & THRUST) != 0;
+            shipX[p] = Protocol.getShort(in);
+            shipY[p] = Protocol.getShort(in);
+            shipRotation[p] = Protocol.getShort(in);
+            score[p] = Protocol.getVarInt(in);
+        }
+
+        setIds(Protocol.getVarInt(in));
+        int copied = Math.min(ids, base.ids);
+        System.arraycopy(base.present, 0, present, 0, copied);
+        Arrays.fill(present, copied, ids, false);
+        System.arraycopy(base.template, 0, template, 0, copied);
+        System.arraycopy(base.x, 0, x, 0, copied);
+        System.arraycopy(base.y, 0, y, 0, copied);
+        System.arraycopy(base.rotation, 0, rotation, 0, copied);
+        for (int id = -1, gap; (gap = Protocol.getVarInt(in)) != 0; ) {
+            id += gap;
+            int flags = in.get();
+            if (flags == REMOVED) {
+                if (id < ids) {
+                    present[id] = false;
+                }
+            } else if (flags == FULL) {
+                present[id] = true;
+                template[id] = Protocol.getVarInt(in);
+                x[id] = Protocol.getShort(in);
+                y[id] = Protocol.getShort(in);
+                rotation[id] = Protocol.getShort(in);
+            } else {
+                if ((flags & MOVED_X) != 0) {
+                    x[id] += Protocol.getSignedVarInt(in);
+                }
+                if ((flags & MOVED_Y) != 0) {
+                    y[id] += Protocol.getSignedVarInt(in);
+                }
+                if ((flags & TURNED) != 0) {
+                    rotation[id] += Protocol.getSignedVarInt(in);
+                }
+            }
+        }
+
+        setBullets(Protocol.getVarInt(in));
+        for (int i = 0; i < bullets; i++) {
+            bulletX[i] = Protocol.getShort(in);
+            bulletY[i] = Protocol.getShort(in);
+        }
+    }
+
+    private void setPlayers(int n) {
+        players = n;
+        if (alive.length < n) {
+            alive = new boolean[n];
+            thrust = new boolean[n];
+            shipX = new int[n];
+            shipY = new int[n];
+            shipRotation = new int[n];
+            score = new int[n];
+        }
+    }
+
+    private void setIds(int n) {
+        ids = n;
+        if (present.length < n) {
+            int capacity = Math.max(n, present.length * 2);
+            present = Arrays.copyOf(present, capacity);
+            template = Arrays.copyOf(template, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            rotation = Arrays.copyOf(rotation, capacity);
+        }
+    }
+
+    private void setBullets(int n) {
+        bullets = n;
+        if (bulletX.length < n) {
+            bulletX = new int[Math.max(n, bulletX.length * 2)];
+            bulletY = new int[bulletX.length];
+        }
+    }
+}
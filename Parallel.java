@@ -0,0 +1,82 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel splits a loop over n items into fixed-size chunks and runs the chunks on a
+ * ForkJoinPool. Chunk boundaries depend only on n and the chunk size, never on how many
+ * threads there are, so code that gives each chunk its own output and merges them in
+ * chunk order gets the same result however the work was scheduled. With no pool the
+ * chunks simply run one after another on the calling thread.
+ */
+public final class Parallel {
+
+    /**
+     * Work done for one chunk of a loop.
+     */
+    public interface ChunkTask {
+        /**
+         * @param chunk index of the chunk, 0 for the first
+         * @param from  first item in the chunk
+         * @param to    one past the last item in the chunk
+         */
+        void run(int chunk, int from, int to);
+    }
+
+    private Parallel() {
+    }
+
+    /**
+     * @return how many chunks forEachChunk splits n items into
+     */
+    public static int chunks(int n, int chunkSize) {
+        return (n + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * Runs task once for every chunk of the items 0 to n-1, and returns when all are done.
+     *
+     * @param pool      pool to run the chunks on, or null to run them on this thread
+     * @param n         number of items
+     * @param chunkSize items per chunk
+     * @param task      the work for one chunk
+     */
+    public static void forEachChunk(ForkJoinPool pool, int n, int chunkSize, ChunkTask task) {
+        int chunks = chunks(n, chunkSize);
+        if (pool == null || chunks <= 1) {
+            for (int c = 0; c < chunks; c++) {
+                task.run(c, c * chunkSize, Math.min(n, (c + 1) * chunkSize));
+            }
+        } else {
+            pool.invoke(new Split(task, n, chunkSize, 0, chunks));
+        }
+    }
+
+    /*
+     * Halves a range of chunks until each half is a single chunk.
+     */
+    private static class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkTask task;
+        private final int n, chunkSize, first, last;
+
+        Split(ChunkTask task, int n, int chunkSize, int first, int last) {
+            this.task = task;
+            this.n = n;
+            this.chunkSize = chunkSize;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                task.run(first, first * chunkSize, Math.min(n, (first + 1) * chunkSize));
+            } else {
+                int middle = (first + last) >>> 1;
+                invokeAll(new Split(task, n, chunkSize, first, middle),
+                        new Split(task, n, chunkSize, middle, last));
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Particles is a fixed budget of short-lived specks for effects: debris when an asteroid
+ * is shot and exhaust behind a thrusting ship. They are purely cosmetic and never touch
+ * the World, so they don't change a game's outcome, its hash or its replays.
+ * <p>
+ * The particles live in parallel primitive arrays sized once, at the cap. Spawning
+ * past the cap is refused rather than growing anything, so a frame never allocates.
+ * update() moves every particle and packs the live ones to the front in a single pass
+ * without branching on whether each one died.
+ * <p>
+ * Drawing thousands of tiny shapes through Graphics2D costs far more per shape than the
+ * pixels involved, and translucent ones even allocate, so paint() instead writes each
+ * particle's pixels straight into an image and draws the part of it they cover with a
+ * single drawImage.
+ */
+public class Particles {
+    // Kinds of particle, each with its own color
+    public static final int DEBRIS = 0, EXHAUST = 1;
+    // Steps each kind fades through as it dies, as premultiplied ARGB pixels
+    private static final int SHADES = 8;
+    private static final int[] COLORS = new int[2 * SHADES];
+    static {
+        Color[] base = {Color.lightGray, Color.orange};
+        for (int k = 0; k < base.length; k++) {
+            for (int s = 0; s < SHADES; s++) {
+                int alpha = 255 * (s + 1) / SHADES;
+                COLORS[k * SHADES + s] = alpha << 24 | base[k].getRed() * alpha / 255 << 16
+                        | base[k].getGreen() * alpha / 255 << 8 | base[k].getBlue() * alpha / 255;
+            }
+        }
+    }
+    // Fraction of its speed a particle keeps each tick
+    private static final float DRAG = 0.96f;
+    // Side of the square each particle is drawn as, in pixels
+    private static final int SIZE = 2;
+
+    private final float[] x, y, previousX, previousY, vx, vy;
+    private final float[] life, fade;   // Ticks left, and 1 / ticks it started with
+    private final byte[] kind;
+    private int count;
+    private long random;                // xorshift state
+
+    // Image the particles are plotted into, and the part of it they cover
+    private BufferedImage layer;
+    private int[] pixels;
+    private final Rectangle area = new Rectangle();
+
+    /**
+     * Creates an empty particle system.
+     *
+     * @param capacity most particles alive at once
+     * @param width    width of the area drawn to
+     * @param height   height of the area drawn to
+     * @param seed     seed for the particles' scatter
+     */
+    public Particles(int capacity, int width, int height, long seed) {
+        x = new float[capacity];
+        y = new float[capacity];
+        previousX = new float[capacity];
+        previousY = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        life = new float[capacity];
+        fade = new float[capacity];
+        kind = new byte[capacity];
+        resize(width, height);
+        random = seed == 0 ? 1 : seed;
+    }
+
+    /**
+     * Changes the size of the area drawn to. The particles live on; only the image they
+     * are plotted into is replaced.
+     *
+     * @param width  width of the area drawn to
+     * @param height height of the area drawn to
+     */
+    public void resize(int width, int height) {
+        layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        pixels = ((DataBufferInt) layer.getRaster().getDataBuffer()).getData();
+        area.setBounds(0, 0, 0, 0);
+    }
+
+    /**
+     * Throws out a ring of debris, as from an asteroid breaking up.
+     *
+     * @param cx     x coordinate of the center
+     * @param cy     y coordinate of the center
+     * @param radius size of what broke up; bigger makes more, faster debris
+     * @return number of particles spawned, fewer than asked for if the cap was reached
+     */
+    public int burst(double cx, double cy, double radius) {
+        int n = 6 + (int) (radius / 3);
+        int spawned = 0;
+        for (int k = 0; k < n; k++) {
+            double angle = 2 * Math.PI * (k + nextFloat()) / n;
+            double speed = (0.5 + 2.5 * nextFloat()) * Math.min(2, radius / 20 + 0.5);
+            double distance = radius * 0.5 * nextFloat();
+            if (spawn(DEBRIS, cx + distance * Math.cos(angle), cy + distance * Math.sin(angle),
+                    speed * Math.cos(angle), speed * Math.sin(angle), 15 + 25 * nextFloat())) {
+                spawned++;
+            }
+        }
+        return spawned;
+    }
+
+    /**
+     * Puffs exhaust out of the back of a ship, drifting along with it.
+     *
+     * @param ship a thrusting ship
+     * @return number of particles spawned, fewer than asked for if the cap was reached
+     */
+    public int exhaust(Ship ship) {
+        double angle = Math.toRadians(ship.getRotation() + 180);
+        Vec2 velocity = ship.getVelocity();
+        int spawned = 0;
+        for (int k = 0; k < 2; k++) {
+            double spread = angle + (nextFloat() - 0.5) * 0.6;
+            double speed = 2 + 2 * nextFloat();
+            if (spawn(EXHAUST, ship.getPivotX() + 8 * Math.cos(angle), ship.getPivotY() + 8 * Math.sin(angle),
+                    velocity.x + speed * Math.cos(spread), velocity.y + speed * Math.sin(spread),
+                    6 + 6 * nextFloat())) {
+                spawned++;
+            }
+        }
+        return spawned;
+    }
+
+    /**
+     * Adds one particle, unless the cap has been reached.
+     *
+     * @param kind  DEBRIS or EXHAUST
+     * @param px    x coordinate to start at
+     * @param py    y coordinate to start at
+     * @param pvx   x distance moved per tick
+     * @param pvy   y distance moved per tick
+     * @param ticks how long it lives
+     * @return false if there was no room for it
+     */
+    public boolean spawn(int kind, double px, double py, double pvx, double pvy, double ticks) {
+        if (count == x.length) {
+            return false;
+        }
+        int i = count++;
+        x[i] = previousX[i] = (float) px;
+        y[i] = previousY[i] = (float) py;
+        vx[i] = (float) pvx;
+        vy[i] = (float) pvy;
+        life[i] = (float) ticks;
+        fade[i] = (float) (1 / ticks);
+        this.kind[i] = (byte) kind;
+        return true;
+    }
+
+    /**
+     * Advances every particle by one tick and drops the ones that have died.
+     */
+    public void update() {
+        float[] x = this.x, y = this.y, previousX = this.previousX, previousY = this.previousY;
+        float[] vx = this.vx, vy = this.vy, life = this.life, fade = this.fade;
+        byte[] kind = this.kind;
+        int j = 0;
+        for (int i = 0, n = count; i < n; i++) {
+            //Every particle is written to slot j, which only moves on if it is still alive
+            float px = x[i], py = y[i];
+            previousX[j] = px;
+            previousY[j] = py;
+            x[j] = px + vx[i];
+            y[j] = py + vy[i];
+            vx[j] = vx[i] * DRAG;
+            vy[j] = vy[i] * DRAG;
+            life[j] = life[i] - 1;
+            fade[j] = fade[i];
+            kind[j] = kind[i];
+            j += life[j] > 0 ? 1 : 0;
+        }
+        count = j;
+    }
+
+    /**
+     * Draws every particle, blended between its previous and current position.
+     *
+     * @param brush object used for drawing
+     * @param alpha how far between the previous (0) and current (1) position to draw
+     */
+    public void paint(Graphics2D brush, double alpha) {
+        plot(alpha);
+        draw(brush);
+    }
+
+    /**
+     * Plots every particle into the particle layer, blended between its previous and
+     * current position, without drawing the layer anywhere yet. getArea() then tells
+     * where they landed.
+     *
+     * @param alpha how far between the previous (0) and current (1) position to plot
+     */
+    public void plot(double alpha) {
+        plot(alpha, 1, 0, 0);
+    }
+
+    /**
+     * Plots every particle like plot(alpha), with the world scaled and moved on its way
+     * to the particle layer. The particles themselves stay SIZE pixels across.
+     *
+     * @param alpha how far between the previous (0) and current (1) position to plot
+     * @param scale pixels per world unit
+     * @param x     where the world's left edge lands on the layer
+     * @param y     where the world's top edge lands on the layer
+     */
+    public void plot(double alpha, double scale, double x, double y) {
+        int[] pixels = this.pixels;
+        int width = layer.getWidth(), height = layer.getHeight();
+        //Wipes last frame's particles, only as far as they reached
+        for (int row = area.y; row < area.y + area.height; row++) {
+            Arrays.fill(pixels, row * width + area.x, row * width + area.x + area.width, 0);
+        }
+        int left = width, top = height, right = 0, bottom = 0;
+        float a = (float) alpha, s = (float) scale, ox = (float) x, oy = (float) y;
+        float[] px0 = previousX, py0 = previousY, px1 = this.x, py1 = this.y;
+        for (int i = 0; i < count; i++) {
+            int px = (int) (ox + (px0[i] + (px1[i] - px0[i]) * a) * s);
+            int py = (int) (oy + (py0[i] + (py1[i] - py0[i]) * a) * s);
+            if (px < 0 || py < 0 || px > width - SIZE || py > height - SIZE) {
+                continue;
+            }
+            int color = COLORS[kind[i] * SHADES + Math.min(SHADES - 1, (int) (life[i] * fade[i] * SHADES))];
+            int o = py * width + px;
+            pixels[o] = color;
+            pixels[o + 1] = color;
+            pixels[o + width] = color;
+            pixels[o + width + 1] = color;
+            left = Math.min(left, px);
+            top = Math.min(top, py);
+            right = Math.max(right, px + SIZE);
+            bottom = Math.max(bottom, py + SIZE);
+        }
+        if (right > left) {
+            area.setBounds(left, top, right - left, bottom - top);
+        } else {
+            area.setBounds(0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Draws the particles as last plotted.
+     *
+     * @param brush object used for drawing
+     */
+    public void draw(Graphics2D brush) {
+        if (!area.isEmpty()) {
+            int right = area.x + area.width, bottom = area.y + area.height;
+            brush.drawImage(layer, area.x, area.y, right, bottom, area.x, area.y, right, bottom, null);
+        }
+    }
+
+    /**
+     * @return the part of the screen the last plotted particles cover; it is reused, so
+     * it must not be modified or kept
+     */
+    public Rectangle getArea() {
+        return area;
+    }
+
+    /*
+     * A float in [0, 1) from the xorshift generator.
+     */
+    private float nextFloat() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (random >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @return number of live particles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return most particles alive at once
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear() {
+        count = 0;
+    }
+}
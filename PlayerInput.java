@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * PlayerInput turns the key events of an InputQueue into one set of World control bits
+ * per tick, on the simulation thread. A key counts as held for every tick it is down,
+ * and a tap that is pressed and released between two ticks still counts for one.
+ * <p>
+ * Firing is paced in ticks, not frames: after a shot the gun needs fireInterval ticks
+ * before it fires again. Each press of the fire key fires once, as soon as the gun is
+ * ready; with autofire, holding the key fires again each time the gun is ready.
+ */
+public class PlayerInput {
+    private static final int MOVES = World.THRUST | World.LEFT | World.RIGHT;
+
+    private final InputQueue queue;
+    private final int fireInterval;
+    private final boolean autofire;
+    private int[] keys = new int[0];    // Bound key codes, and the control bit of each
+    private int[] bits = new int[0];
+
+    private int held;       // Control bits whose key is down
+    private int tapped;     // Control bits whose key went down since the last tick
+    private boolean shot;   // A press of the fire key not yet turned into a shot
+    private int cooldown;   // Ticks until the gun can fire again
+
+    /**
+     * Creates input with no keys bound.
+     *
+     * @param queue        events from the event dispatch thread
+     * @param fireInterval fewest ticks between two shots, at least 1
+     * @param autofire     true to keep firing while the fire key is held
+     */
+    public PlayerInput(InputQueue queue, int fireInterval, boolean autofire) {
+        this.queue = queue;
+        this.fireInterval = Math.max(1, fireInterval);
+        this.autofire = autofire;
+    }
+
+    /**
+     * Makes a key control one of the ship's controls. Call before the simulation starts.
+     *
+     * @param keyCode key, as in KeyEvent.getKeyCode()
+     * @param control World.THRUST, LEFT, RIGHT or FIRE
+     */
+    public void bind(int keyCode, int control) {
+        int n = keys.length;
+        keys = Arrays.copyOf(keys, n + 1);
+        bits = Arrays.copyOf(bits, n + 1);
+        keys[n] = keyCode;
+        bits[n] = control;
+    }
+
+    /**
+     * Takes the events up to the moment a tick stands for and works out its controls.
+     * Call once per tick.
+     *
+     * @param until System.nanoTime() the tick stands for; later events are left for the next
+     * @return the control bits for the tick
+     */
+    public int tick(long until) {
+        for (int e = queue.poll(until); e != -1; e = queue.poll(until)) {
+            int bit = bitOf(InputQueue.keyCode(e));
+            if (InputQueue.pressed(e)) {
+                //Key repeat sends more presses while held; only the first one is a new shot
+                if (bit == World.FIRE && (held & World.FIRE) == 0) {
+                    shot = true;
+                }
+                held |= bit;
+                tapped |= bit;
+            } else {
+                held &= ~bit;
+            }
+        }
+        int controls = (held | tapped) & MOVES;
+        tapped = 0;
+
+        if (cooldown > 0) {
+            cooldown--;
+        }
+        if (cooldown == 0 && (shot || autofire && (held & World.FIRE) != 0)) {
+            controls |= World.FIRE;
+            shot = false;
+            cooldown = fireInterval;
+        }
+        return controls;
+    }
+
+    private int bitOf(int keyCode) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == keyCode) {
+                return bits[i];
+            }
+        }
+        return 0;
+    }
+}
@@ -1,7 +1,8 @@
 import java.awt.*;
-import java.awt.geom.Area;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Polygon is a sequence of points in space defined by the points
@@ -17,9 +18,20 @@ import java.awt.geom.Point2D;
  * NOTE: You don't need to worry about the "magic math" details.
  */
 public abstract class Polygon {
-    private final Point2D.Double[] shape;   // An array of points
+    private final ShapeTemplate template;  // The outline, shared with other polygons
     protected final Point2D.Double position;   // The offset mentioned above
     protected double rotation;  // Zero degrees is due east
+    private final Point2D.Double previousPosition; // Position as of the last tick
+    private double previousRotation;               // Rotation as of the last tick
+    private double worldWidth = World.WIDTH, worldHeight = World.HEIGHT;  // Where it wraps around
+
+    // World-space geometry, recomputed only when position or rotation changes
+    private final Point2D.Double[] points;
+    private Path2D.Double path;             // Built on first use by getShape()
+    private boolean pathStale = true;
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();
+    private final Affine transform = new Affine();  // Template to world; trig redone only on turns
+    private double cachedX = Double.NaN, cachedY = Double.NaN, cachedRotation = Double.NaN;
 
     /**
      * Creates a polygon with the specified shape, position, and rotation.
@@ -28,47 +40,36 @@ public abstract class Polygon {
      * @param rotation orientation of the polygon
      */
     public Polygon(Point2D.Double[] shape, Point2D.Double position, double rotation) {
-        this.shape = shape;
+        this(new ShapeTemplate(shape), position, rotation);
+    }
+
+    /**
+     * Creates a polygon sharing an existing shape.
+     * @param template the shape, which may be shared by any number of polygons
+     * @param position location of the center point of the polygon
+     * @param rotation orientation of the polygon
+     */
+    public Polygon(ShapeTemplate template, Point2D.Double position, double rotation) {
+        this.template = template;
         this.position = position;
         this.rotation = rotation;
-
-        // First, we find the shape's top-most left-most boundary, its origin.
-        double left = shape[0].getX();
-        double top = shape[0].getY();
-        for (Point2D.Double p : shape) {
-            if (p.getX() < left) {
-                left = p.getX();
-            }
-            if (p.getY() < top) {
-                top = p.getY();
-            }
-        }
-        Point2D.Double origin = new Point2D.Double(left, top);
-
-        // Then, we orient all of its points relative to the real origin.
-        for (Point2D.Double p : shape) {
-            p.setLocation(p.getX() - origin.getX(), p.getY() - origin.getY());
+        this.previousPosition = new Point2D.Double(position.x, position.y);
+        this.previousRotation = rotation;
+        points = new Point2D.Double[template.size()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D.Double();
         }
     }
 
     /**
      * Gets the points of the polygon with the rotation and offset applied.
+     * The array is shared and reused, so callers must not modify it or hold on
+     * to it across a move.
      *
      * @return array of points representing the current rotation and offset of the polygon
      */
     public final Point2D.Double[] getPoints() {
-        int i = 0;
-        Point2D.Double center = findCenter();
-        Point2D.Double[] points = new Point2D.Double[shape.length];
-        for (Point2D.Double p : shape) {
-            double x = ((p.getX() - center.getX()) * Math.cos(Math.toRadians(rotation)))
-                    - ((p.getY() - center.getY()) * Math.sin(Math.toRadians(rotation)))
-                    + center.getX() / 2 + position.getX();
-            double y = ((p.getX() - center.getX()) * Math.sin(Math.toRadians(rotation)))
-                    + ((p.getY() - center.getY()) * Math.cos(Math.toRadians(rotation)))
-                    + center.getY() / 2 + position.getY();
-            points[i++] = new Point2D.Double(x, y);
-        }
+        refresh();
         return points;
     }
 
@@ -78,7 +79,22 @@ public abstract class Polygon {
      * @return true if the point is inside
      */
     public final boolean contains(Point2D.Double point) {
-        return getShape().contains(point);
+        return contains(point.x, point.y);
+    }
+
+    /**
+     * Determines if a point is inside the polygon.
+     *
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return true if the point is inside
+     */
+    public final boolean contains(double x, double y) {
+        Rectangle2D.Double box = getBounds();
+        if (x < box.x || y < box.y || x > box.x + box.width || y > box.y + box.height) {
+            return false;
+        }
+        return Collisions.contains(points, x, y);
     }
 
     /**
@@ -92,73 +108,162 @@ public abstract class Polygon {
 
     public double getRotation() { return rotation; }
 
+    /**
+     * The point the polygon is drawn rotated around. Every point of the polygon lies
+     * within getBoundingRadius() of it.
+     *
+     * @return x coordinate of the pivot
+     */
+    public double getPivotX() { return template.getCenterX() / 2 + position.x; }
+
+    /**
+     * @return y coordinate of the pivot
+     * @see #getPivotX()
+     */
+    public double getPivotY() { return template.getCenterY() / 2 + position.y; }
+
+    /**
+     * @return distance from the pivot to the farthest point of the polygon
+     */
+    public double getBoundingRadius() { return template.getBoundingRadius(); }
+
+    /**
+     * @return true if the polygon's shape is convex
+     */
+    public boolean isConvex() { return template.isConvex(); }
+
+    /**
+     * @return the shape this polygon is an instance of
+     */
+    public ShapeTemplate getTemplate() { return template; }
+
     public Point2D.Double getPosition() { return (Point2D.Double) position.clone(); }
-   
-   /*
-   The following methods are private access restricted because, as this access
-   level always implies, they are intended for use only as helpers of the
-   methods in this class that are not private. They can't be used anywhere else.
-   */
 
-    /*
-     * Magic math that finds the area of the polygon. Used to determine the center.
+    /**
+     * @return x coordinate of the position as of the last tick
+     */
+    public double getPreviousX() { return previousPosition.x; }
+
+    /**
+     * @return y coordinate of the position as of the last tick
+     */
+    public double getPreviousY() { return previousPosition.y; }
+
+    /**
+     * @return rotation as of the last tick
+     */
+    public double getPreviousRotation() { return previousRotation; }
+
+    /**
+     * Puts the polygon back in a saved state, such as one read from a snapshot.
      *
-     * @return area of the polygon
+     * @param x                x coordinate of the position
+     * @param y                y coordinate of the position
+     * @param rotation         orientation of the polygon
+     * @param previousX        x coordinate as of the last tick
+     * @param previousY        y coordinate as of the last tick
+     * @param previousRotation rotation as of the last tick
      */
-    private double findArea() {
-        double sum = 0;
-        for (int i = 0, j = 1; i < shape.length; i++, j = (j + 1) % shape.length) {
-            sum += shape[i].getX() * shape[j].getY() - shape[j].getX() * shape[i].getY();
-        }
-        return Math.abs(sum / 2);
+    public void restore(double x, double y, double rotation, double previousX, double previousY,
+                        double previousRotation) {
+        position.setLocation(x, y);
+        this.rotation = rotation;
+        previousPosition.setLocation(previousX, previousY);
+        this.previousRotation = previousRotation;
     }
 
-    /*
+    /**
+     * @return x coordinate of the position, without copying it
+     */
+    public double getX() { return position.x; }
+
+    /**
+     * @return y coordinate of the position, without copying it
+     */
+    public double getY() { return position.y; }
+
+    /**
      * Finds the center of the polygon.
      *
      * @return center point
      */
     public Point2D.Double findCenter() {
-        Point2D.Double sum = new Point2D.Double(0, 0);
-        for (int i = 0, j = 1; i < shape.length; i++, j = (j + 1) % shape.length) {
-            sum.setLocation(sum.getX() + (shape[i].getX() + shape[j].getX())
-                            * (shape[i].getX() * shape[j].getY() - shape[j].getX() * shape[i].getY()),
-                    sum.getY() + (shape[i].getY() + shape[j].getY())
-                            * (shape[i].getX() * shape[j].getY() - shape[j].getX() * shape[i].getY()));
-        }
-        double area = findArea();
-        return new Point2D.Double(Math.abs(sum.getX() / (6 * area)), Math.abs(sum.getY() / (6 * area)));
+        return new Point2D.Double(template.getCenterX(), template.getCenterY());
     }
 
     /**
      * Generates a Path2D.Double giving the current points of the polygon. This path can
      * be used with any other Path2D.Double to see if they intersect. It can also be used
-     * to determine whether the polygon contains a point.
+     * to determine whether the polygon contains a point. Like getPoints(), the path is
+     * cached and shared, so it must not be modified.
      * @return shape of the polygon packaged in a way compatible with existing Java libraries
      */
     public final Path2D.Double getShape() {
-        Path2D.Double path = new Path2D.Double();
-        Point2D.Double[] points = getPoints();
-        path.moveTo(points[0].x, points[0].y);
-        for (int i = 1; i < points.length; i++)
-            path.lineTo(points[i].x, points[i].y);
-        path.closePath();
+        refresh();
+        if (pathStale) {
+            if (path == null) {
+                path = new Path2D.Double(Path2D.WIND_NON_ZERO, points.length + 1);
+            }
+            path.reset();
+            path.moveTo(points[0].x, points[0].y);
+            for (int i = 1; i < points.length; i++)
+                path.lineTo(points[i].x, points[i].y);
+            path.closePath();
+            pathStale = false;
+        }
         return path;
     }
 
+    /**
+     * Gets the smallest axis-aligned rectangle around the polygon's current points.
+     * The rectangle is cached and shared, so it must not be modified.
+     *
+     * @return bounding box of the polygon
+     */
+    public final Rectangle2D.Double getBounds() {
+        refresh();
+        return bounds;
+    }
+
+    /*
+     * Brings the cached points and bounds up to date if the polygon has moved or
+     * turned since they were last computed.
+     */
+    private void refresh() {
+        if (position.x == cachedX && position.y == cachedY && rotation == cachedRotation) {
+            return;
+        }
+        Affine m = transform.set(rotation, getPivotX(), getPivotY());
+        ShapeTemplate t = template;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.length; i++) {
+            double x = m.transformX(t.getX(i), t.getY(i));
+            double y = m.transformY(t.getX(i), t.getY(i));
+            points[i].x = x;
+            points[i].y = y;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        bounds.setRect(minX, minY, maxX - minX, maxY - minY);
+        pathStale = true;
+
+        cachedX = position.x;
+        cachedY = position.y;
+        cachedRotation = rotation;
+    }
+
     /**
      * Determines whether the polygon intersects with another polygon.
-     * This code is easy to extend to checking for intersections with
-     * any other shape that uses a Path2D.Double.
+     * See Collisions for the tests used.
      *
      * @param other polygon to check against for intersection
      * @return true if the two polygons intersect
      */
     public boolean intersects(Polygon other) {
-        Area area = new Area(getShape());
-        Area otherArea = new Area(other.getShape());
-        area.intersect(otherArea);
-        return !area.isEmpty();
+        return Collisions.intersects(this, other);
     }
 
     /**
@@ -186,9 +291,142 @@ public abstract class Polygon {
     }
 
     /**
-     * Override this method to update the object every frame.
+     * Remembers the current position and rotation so that frames drawn before the
+     * next tick can blend between the two. Call this just before update().
+     */
+    public final void savePrevious() {
+        previousPosition.setLocation(position);
+        previousRotation = rotation;
+    }
+
+    /**
+     * Sets the size of the world the polygon lives in, which is where wrap() takes it
+     * back round and how far it has to jump to count as wrapping when blended.
+     * Polygons start out in a world of World.WIDTH by World.HEIGHT.
+     *
+     * @param width  width of the world
+     * @param height height of the world
+     */
+    public final void setWorldSize(double width, double height) {
+        worldWidth = width;
+        worldHeight = height;
+    }
+
+    /**
+     * Takes a position that has left the world back in on the opposite side.
+     */
+    protected final void wrap() {
+        if (position.x > worldWidth) {
+            position.x = 0;
+        } else if (position.x < 0) {
+            position.x = worldWidth;
+        }
+        if (position.y > worldHeight) {
+            position.y = 0;
+        } else if (position.y < 0) {
+            position.y = worldHeight;
+        }
+    }
+
+    /**
+     * Paints the polygon part of the way between its previous and current state.
+     * Moves larger than half the world are wrap-arounds and are drawn without blending.
+     *
+     * @param brush object used for drawing
+     * @param alpha how far between the previous (0) and current (1) state to draw
+     */
+    public final void paint(Graphics brush, double alpha) {
+        double back = 1 - alpha;
+        double dx = blendX(back), dy = blendY(back);
+        Graphics2D graphics2D = (Graphics2D) brush;
+        AffineTransform saved = graphics2D.getTransform();
+        graphics2D.translate(dx, dy);
+        graphics2D.rotate(Math.toRadians(blendTurn() * back),
+                getPivotX(), getPivotY());
+        paint(brush);
+        graphics2D.setTransform(saved);
+    }
+
+    /**
+     * Adds the polygon's outline to a path, placed part of the way between its previous
+     * and current state just as paint(brush, alpha) would draw it, so many polygons can
+     * be drawn with a single call. Every outline is added winding the same way.
+     *
+     * @param path  path to add a closed subpath to
+     * @param alpha how far between the previous (0) and current (1) state to place it
+     */
+    public final void appendTo(Path2D.Double path, double alpha) {
+        double back = 1 - alpha;
+        double dx = blendX(back), dy = blendY(back);
+        double radians = Math.toRadians(blendTurn() * back);
+        double cos = Math.cos(radians), sin = Math.sin(radians);
+        double pivotX = getPivotX(), pivotY = getPivotY();
+        Point2D.Double[] p = getPoints();
+        boolean reversed = template.isReversed();
+        for (int k = 0; k < p.length; k++) {
+            Point2D.Double point = p[reversed ? p.length - 1 - k : k];
+            double x = point.x - pivotX, y = point.y - pivotY;
+            double px = pivotX + x * cos - y * sin + dx;
+            double py = pivotY + x * sin + y * cos + dy;
+            if (k == 0) {
+                path.moveTo(px, py);
+            } else {
+                path.lineTo(px, py);
+            }
+        }
+        path.closePath();
+    }
+
+    /**
+     * Finds a box sure to hold the polygon as paint(brush, alpha) draws it, outline
+     * included, without transforming any points.
+     *
+     * @param alpha how far between the previous (0) and current (1) state it is drawn
+     * @param out   rectangle to store the box in
+     */
+    public final void getBounds(double alpha, Rectangle out) {
+        double back = 1 - alpha;
+        double r = template.getBoundingRadius() + 2;  // Room for the stroke, antialiasing and normalization
+        double x = getPivotX() + blendX(back) - r, y = getPivotY() + blendY(back) - r;
+        int left = (int) Math.floor(x), top = (int) Math.floor(y);
+        out.setBounds(left, top, (int) Math.ceil(x + 2 * r) - left, (int) Math.ceil(y + 2 * r) - top);
+    }
+
+    /*
+     * How far back towards the previous position to draw, given how far back (1 - alpha)
+     * the frame is. Moves larger than half the world are wrap-arounds and aren't blended.
+     */
+    private double blendX(double back) {
+        double dx = (previousPosition.x - position.x) * back;
+        double dy = (previousPosition.y - position.y) * back;
+        return Math.abs(dx) > worldWidth / 2 || Math.abs(dy) > worldHeight / 2 ? 0 : dx;
+    }
+
+    private double blendY(double back) {
+        double dx = (previousPosition.x - position.x) * back;
+        double dy = (previousPosition.y - position.y) * back;
+        return Math.abs(dx) > worldWidth / 2 || Math.abs(dy) > worldHeight / 2 ? 0 : dy;
+    }
+
+    /*
+     * The turn since the last tick, the short way round, in degrees.
+     */
+    private double blendTurn() {
+        double turn = (previousRotation - rotation) % 360;
+        if (turn > 180) {
+            turn -= 360;
+        } else if (turn < -180) {
+            turn += 360;
+        }
+        return turn;
+    }
+
+    /**
+     * Override this method to update the object every frame. Does nothing by default, for
+     * polygons that are moved in bulk instead, as asteroids are by Asteroid.update(EntityStore, ...).
      */
-    public abstract void update();
+    public void update() {
+    }
     /**
      * Override this method to paint the object every frame.
      */
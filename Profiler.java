@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Profiler times each phase of a tick and of a frame, keeping one LatencyHistogram
+ * per phase. Timing a phase is a pair of calls around it:
+ * <pre>
+ *     long t = profiler.start();
+ *     ...
+ *     t = profiler.stop(Profiler.Phase.UPDATE, t);   // returns now, to time the next phase
+ * </pre>
+ * A disabled profiler (such as OFF) skips the clock entirely, so leaving the calls in
+ * place costs next to nothing.
+ */
+public class Profiler {
+    /**
+     * The parts a tick and a frame are split into. TICK and FRAME are the totals.
+     */
+    public enum Phase {
+        INPUT, UPDATE, BROAD_PHASE, NARROW_PHASE, TICK, RENDER, PRESENT, FRAME
+    }
+
+    // A profiler that records nothing
+    public static final Profiler OFF = new Profiler(false);
+
+    private final boolean enabled;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    /**
+     * Creates an enabled profiler.
+     */
+    public Profiler() {
+        this(true);
+    }
+
+    private Profiler(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return the time a phase starts at, or 0 if disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a phase as having run from start until now.
+     *
+     * @param phase the phase that just finished
+     * @param start the time the phase started, from start() or a previous stop()
+     * @return the time now, which is when the next phase starts
+     */
+    public long stop(Phase phase, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        histograms[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    public LatencyHistogram get(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * Summarizes every phase that has recorded anything, one line per phase,
+     * in milliseconds. Used for the on-screen overlay.
+     *
+     * @return the summary lines
+     */
+    public String[] summary() {
+        String[] lines = new String[histograms.length + 1];
+        lines[0] = String.format(Locale.ROOT, "%-13s %7s %7s %7s %7s", "ms", "p50", "p99", "p99.9", "max");
+        int n = 1;
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = get(phase);
+            if (h.getCount() > 0) {
+                lines[n++] = String.format(Locale.ROOT, "%-13s %7.3f %7.3f %7.3f %7.3f", phase,
+                        h.percentile(0.5) / 1e6, h.percentile(0.99) / 1e6, h.percentile(0.999) / 1e6, h.getMax() / 1e6);
+            }
+        }
+        return Arrays.copyOf(lines, n);
+    }
+
+    /**
+     * Writes every phase's statistics to a file, as JSON if the file name ends in
+     * .json and as CSV otherwise. Times are in nanoseconds.
+     *
+     * @param file where to write
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file) throws IOException {
+        boolean json = file.toString().endsWith(".json");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println(json ? "{" : "phase,count,mean,p50,p99,p99.9,max");
+            Phase[] phases = Phase.values();
+            for (int i = 0; i < phases.length; i++) {
+                LatencyHistogram h = get(phases[i]);
+                if (json) {
+                    out.printf(Locale.ROOT, "  \"%s\": {\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p99\": %d, \"p99.9\": %d, \"max\": %d}%s%n",
+                            phases[i], h.getCount(), h.getMean(), h.percentile(0.5), h.percentile(0.99),
+                            h.percentile(0.999), h.getMax(), i < phases.length - 1 ? "," : "");
+                } else {
+                    out.printf(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%d%n", phases[i], h.getCount(), h.getMean(),
+                            h.percentile(0.5), h.percentile(0.99), h.percentile(0.999), h.getMax());
+                }
+            }
+            if (json) {
+                out.println("}");
+            }
+        }
+    }
+}
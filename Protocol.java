@@ -0,0 +1,117 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Protocol holds what the Server and Client agree on: the packet types, how positions
+ * and angles are squeezed into 16 bits, and the variable-length integers used for
+ * everything that is usually small. Positions are sent in the finest step that still
+ * fits the world's far edge in 16 bits, which both ends work out from the world size
+ * the server sends in WELCOME.
+ * <p>
+ * Every packet starts with its type byte. Clients send JOIN, then INPUT every tick
+ * and LEAVE when done; the server answers JOIN with WELCOME and sends
+ * SNAPSHOT packets at the snapshot rate. See Server and Client for the layouts.
+ */
+public final class Protocol {
+    public static final byte JOIN = 1;
+    public static final byte WELCOME = 2;
+    public static final byte INPUT = 3;
+    public static final byte SNAPSHOT = 4;
+    public static final byte LEAVE = 5;
+
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    // Largest packet either side sends; a UDP datagram holds at most 65507 bytes
+    public static final int MAX_PACKET = 65507;
+    // Inputs repeated in every INPUT packet, so a lost packet loses no controls
+    public static final int INPUT_REDUNDANCY = 8;
+
+    // Positions are sent in at most 1/64ths of a pixel, angles in 1/65536ths of a turn
+    private static final double MAX_POSITION_SCALE = 64;
+    private static final double ANGLE_SCALE = 65536 / 360.0;
+
+    private Protocol() {
+    }
+
+    /**
+     * The steps per pixel positions in a world of the given size are sent in: 64, or
+     * for a world wider or taller than 1023 pixels the largest power of two below that
+     * which still fits the far edge in 16 bits. Powers of two keep the steps exact.
+     *
+     * @param width  width of the world
+     * @param height height of the world
+     * @return steps per pixel, for quantizePosition() and position()
+     */
+    public static double positionScale(double width, double height) {
+        double scale = MAX_POSITION_SCALE;
+        while (Math.max(width, height) * scale > 0xFFFF) {
+            scale /= 2;
+        }
+        return scale;
+    }
+
+    /**
+     * @param coordinate a coordinate in the world
+     * @param scale      steps per pixel, from positionScale()
+     * @return the coordinate as an unsigned 16-bit value
+     */
+    public static int quantizePosition(double coordinate, double scale) {
+        return (int) Math.max(0, Math.min(0xFFFF, Math.round(coordinate * scale)));
+    }
+
+    public static double position(int quantized, double scale) {
+        return quantized / scale;
+    }
+
+    /**
+     * @return an angle in degrees as an unsigned 16-bit value
+     */
+    public static int quantizeAngle(double degrees) {
+        return (int) Math.round(degrees * ANGLE_SCALE) & 0xFFFF;
+    }
+
+    public static double angle(int quantized) {
+        return quantized / ANGLE_SCALE;
+    }
+
+    /**
+     * Writes a non-negative int in 1 byte if below 128, 2 if below 16384, and so on.
+     */
+    public static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Writes a signed int so that values near zero, either side, take few bytes.
+     */
+    public static void putSignedVarInt(ByteBuffer out, int value) {
+        putVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    public static int getSignedVarInt(ByteBuffer in) {
+        int zigzag = getVarInt(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public static void putShort(ByteBuffer out, int value) {
+        out.putShort((short) value);
+    }
+
+    public static int getShort(ByteBuffer in) {
+        return in.getShort() & 0xFFFF;
+    }
+}
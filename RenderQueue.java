@@ -0,0 +1,190 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * RenderQueue collects a frame's shapes by paint state instead of drawing each one as
+ * it comes. A paint state is an outline color, a fill color and a layer. flush() sorts
+ * the states by layer and color and draws each in one go, so a frame costs a couple of
+ * color changes per state rather than per entity.
+ * <p>
+ * Polygons of a state are appended to a single Path2D, which is drawn with one draw and
+ * one fill. Circles are small and all alike (bullets), and rasterizing a path of many
+ * tiny curves spread over the screen turns out slower than drawing them one by one, so
+ * instead each state renders its circle once into a cached image and stamps that at
+ * every position, as Compositor does with the background.
+ * <p>
+ * Each shape is outlined before it is filled, as Polygon.outline and fill do, and a
+ * lower layer is drawn before a higher one. Paths are reset and arrays reused, so once
+ * they have grown to fit a frame nothing more is allocated.
+ */
+public class RenderQueue {
+    private Color[] outline = new Color[4], fill = new Color[4];
+    private int[] layer = new int[4];
+    private Path2D.Double[] path = new Path2D.Double[4];
+    private boolean[] used = new boolean[4];
+    private int[] order = new int[4];  // States in the order flush() draws them
+    private int states;
+
+    // Queued circles of every state, and each state's pre-rendered circle
+    private double[][] circleX = new double[4][], circleY = new double[4][], circleRadius = new double[4][];
+    private int[] circles = new int[4];
+    private BufferedImage[] sprite = new BufferedImage[4];
+    private double[] spriteRadius = new double[4];
+
+    /**
+     * Registers a paint state. Shapes of one state are drawn together, so give
+     * entities that must cover others a higher layer.
+     *
+     * @param outline color to outline with, or null for no outline
+     * @param fill    color to fill with, or null for no fill
+     * @param layer   drawing order of the state, lowest first
+     * @return the state's number, for add()
+     */
+    public int state(Color outline, Color fill, int layer) {
+        if (states == path.length) {
+            int length = states * 2;
+            this.outline = Arrays.copyOf(this.outline, length);
+            this.fill = Arrays.copyOf(this.fill, length);
+            this.layer = Arrays.copyOf(this.layer, length);
+            path = Arrays.copyOf(path, length);
+            used = Arrays.copyOf(used, length);
+            order = Arrays.copyOf(order, length);
+            circleX = Arrays.copyOf(circleX, length);
+            circleY = Arrays.copyOf(circleY, length);
+            circleRadius = Arrays.copyOf(circleRadius, length);
+            circles = Arrays.copyOf(circles, length);
+            sprite = Arrays.copyOf(sprite, length);
+            spriteRadius = Arrays.copyOf(spriteRadius, length);
+        }
+        int s = states++;
+        this.outline[s] = outline;
+        this.fill[s] = fill;
+        this.layer[s] = layer;
+        path[s] = new Path2D.Double(Path2D.WIND_NON_ZERO, 256);
+        circleX[s] = new double[64];
+        circleY[s] = new double[64];
+        circleRadius[s] = new double[64];
+        return s;
+    }
+
+    /**
+     * Queues a polygon, blended between its previous and current state.
+     *
+     * @param state   paint state from state()
+     * @param polygon the polygon
+     * @param alpha   how far between the previous (0) and current (1) state to draw
+     */
+    public void add(int state, Polygon polygon, double alpha) {
+        polygon.appendTo(path[state], alpha);
+        used[state] = true;
+    }
+
+    /**
+     * Queues a circle.
+     *
+     * @param state  paint state from state()
+     * @param x      x coordinate of the center
+     * @param y      y coordinate of the center
+     * @param radius radius of the circle
+     */
+    public void addCircle(int state, double x, double y, double radius) {
+        int n = circles[state]++;
+        if (n == circleX[state].length) {
+            circleX[state] = Arrays.copyOf(circleX[state], n * 2);
+            circleY[state] = Arrays.copyOf(circleY[state], n * 2);
+            circleRadius[state] = Arrays.copyOf(circleRadius[state], n * 2);
+        }
+        circleX[state][n] = x;
+        circleY[state][n] = y;
+        circleRadius[state][n] = radius;
+        used[state] = true;
+    }
+
+    /**
+     * Draws everything queued since the last flush, state by state, and empties the queue.
+     *
+     * @param brush object used for drawing
+     */
+    public void flush(Graphics2D brush) {
+        int n = 0;
+        for (int s = 0; s < states; s++) {
+            if (used[s]) {
+                //Insertion sort by layer then colors; there are only ever a handful of states
+                int i = n++;
+                while (i > 0 && compare(order[i - 1], s) > 0) {
+                    order[i] = order[i - 1];
+                    i--;
+                }
+                order[i] = s;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int s = order[i];
+            if (outline[s] != null) {
+                brush.setColor(outline[s]);
+                brush.draw(path[s]);
+            }
+            if (fill[s] != null) {
+                brush.setColor(fill[s]);
+                brush.fill(path[s]);
+            }
+            for (int c = 0; c < circles[s]; c++) {
+                double r = circleRadius[s][c];
+                BufferedImage image = sprite(brush, s, r);
+                int offset = image.getWidth() / 2;
+                brush.drawImage(image, (int) Math.round(circleX[s][c]) - offset,
+                        (int) Math.round(circleY[s][c]) - offset, null);
+            }
+            path[s].reset();
+            circles[s] = 0;
+            used[s] = false;
+        }
+    }
+
+    /*
+     * The state's circle of the given radius, drawn the way Circle.outline and fill
+     * would, with the brush's rendering hints. Redrawn only when the radius changes.
+     */
+    private BufferedImage sprite(Graphics2D brush, int s, double radius) {
+        if (sprite[s] == null || spriteRadius[s] != radius) {
+            int size = 2 * (int) Math.ceil(radius + 1);
+            BufferedImage image = brush.getDeviceConfiguration().createCompatibleImage(size, size,
+                    Transparency.TRANSLUCENT);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setRenderingHints(brush.getRenderingHints());
+            double center = size / 2.0;
+            Ellipse2D.Double dot = new Ellipse2D.Double(center - radius, center - radius, 2 * radius, 2 * radius);
+            if (outline[s] != null) {
+                graphics.setColor(outline[s]);
+                graphics.draw(dot);
+            }
+            if (fill[s] != null) {
+                graphics.setColor(fill[s]);
+                graphics.fill(dot);
+            }
+            graphics.dispose();
+            sprite[s] = image;
+            spriteRadius[s] = radius;
+        }
+        return sprite[s];
+    }
+
+    private int compare(int a, int b) {
+        if (layer[a] != layer[b]) {
+            return Integer.compare(layer[a], layer[b]);
+        }
+        if (rgb(fill[a]) != rgb(fill[b])) {
+            return Integer.compare(rgb(fill[a]), rgb(fill[b]));
+        }
+        return Integer.compare(rgb(outline[a]), rgb(outline[b]));
+    }
+
+    private static int rgb(Color color) {
+        return color == null ? 0 : color.getRGB();
+    }
+}
@@ -0,0 +1,52 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Replay re-simulates recorded games with no window, as fast as the CPU allows, and
+ * checks that each ends in exactly the state it was recorded in. Record a game by
+ * starting Asteroids with -Dasteroids.record=file.bin.
+ * <p>
+ * Usage: java Replay log.bin [more.bin ...]
+ * <p>
+ * The process exits with status 1 if any log ends with a different hash, which makes
+ * recorded sessions usable as regression tests. -Dasteroids.threads=n replays each
+ * log on n threads, as in Headless.
+ */
+public class Replay {
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length == 0) {
+            System.out.println("Usage: java Replay log.bin [more.bin ...]");
+            System.exit(2);
+        }
+        int threads = Integer.getInteger("asteroids.threads", 1);
+        boolean failed = false;
+        for (String name : args) {
+            InputLog log = new InputLog(Paths.get(name));
+            World world = new World(log.getSeed(), log.getAsteroidCount());
+            world.setParallelism(threads);
+            long start = System.nanoTime();
+            for (long t = 0; t < log.getTicks(); t++) {
+                world.tick(log.controls(t));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            world.setParallelism(1);
+
+            String result;
+            if (log.getHash() == 0) {
+                result = "no hash recorded";
+            } else if (log.getHash() == world.hash()) {
+                result = "ok";
+            } else {
+                result = String.format("MISMATCH, expected %016x", log.getHash());
+                failed = true;
+            }
+            System.out.printf("%s: %d ticks, score %d, %.0f ticks/sec, hash %016x %s%n", name, log.getTicks(),
+                    world.getScore(), log.getTicks() / seconds, world.hash(), result);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
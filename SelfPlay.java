@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SelfPlay has bots play many independent games with no window, spread over every core,
+ * and reports how fast they went and how they scored. It is meant for tuning difficulty
+ * by the numbers, and doubles as the multi-core throughput benchmark of the simulation:
+ * each game runs on one thread, and the games are shared out by a work-stealing
+ * ForkJoinPool, so a core that finishes its short games takes over others' long ones.
+ * <p>
+ * Usage: java SelfPlay [games] [policy] [max ticks] [asteroids] [seed]
+ * <p>
+ * The policy is a BotPolicy name: spin, random, aim, or a class name. A game ends when the
+ * ship is hit, the field is cleared or the tick limit is reached. Game g is seeded from
+ * the seed and g alone, so the scores, and the hash printed at the end, are the same
+ * whatever -Dasteroids.threads=n (default: one per core) the games are run on.
+ */
+public class SelfPlay {
+    // How a game ended
+    private static final int DIED = 0, CLEARED = 1, TIMED_OUT = 2;
+    // Fewest games a task runs itself instead of splitting
+    private static final int GRAIN = 1;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String policy = args.length > 1 ? args[1] : "aim";
+        int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 10 * 60 * GameLoop.TICK_RATE;
+        int asteroids = args.length > 3 ? Integer.parseInt(args[3]) : World.ASTEROIDS;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        int threads = Integer.getInteger("asteroids.threads", Runtime.getRuntime().availableProcessors());
+        BotPolicy.create(policy, seed); // Fail now on an unknown policy, not in every task
+
+        Results results = new Results(games);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        pool.invoke(new Games(results, 0, games, policy, maxTicks, asteroids, seed));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        long ticks = 0;
+        int[] endings = new int[3];
+        long hash = seed;
+        for (int g = 0; g < games; g++) {
+            ticks += results.ticks[g];
+            endings[results.ending[g]]++;
+            hash = World.mix(hash, results.hash[g]);
+        }
+        int[] scores = results.score.clone();
+        Arrays.sort(scores);
+        double mean = 0;
+        for (int score : scores) {
+            mean += (double) score / games;
+        }
+        LatencyHistogram tick = results.tickTimes();
+
+        System.out.printf(Locale.ROOT, "games      %d of %s on %d threads, %d asteroids, at most %d ticks%n",
+                games, policy, threads, asteroids, maxTicks);
+        System.out.printf(Locale.ROOT, "games/sec  %.1f%n", games / seconds);
+        System.out.printf(Locale.ROOT, "ticks/sec  %.0f (%.0f per thread)%n", ticks / seconds, ticks / seconds / threads);
+        System.out.printf(Locale.ROOT, "score      %.1f mean; %d min, %d p10, %d p50, %d p90, %d max%n", mean,
+                scores[0], percentile(scores, 0.1), percentile(scores, 0.5), percentile(scores, 0.9), scores[games - 1]);
+        System.out.printf(Locale.ROOT, "endings    %d died, %d cleared, %d timed out%n",
+                endings[DIED], endings[CLEARED], endings[TIMED_OUT]);
+        System.out.printf(Locale.ROOT, "game time  %.2f ms p50, %.2f ms p99, %.2f ms max%n",
+                results.gameTime.percentile(0.5) / 1e6, results.gameTime.percentile(0.99) / 1e6,
+                results.gameTime.getMax() / 1e6);
+        System.out.printf(Locale.ROOT, "tick time  %.1f us p50, %.1f us p99, %.1f us p99.9, %.1f us max%n",
+                tick.percentile(0.5) / 1e3, tick.percentile(0.99) / 1e3, tick.percentile(0.999) / 1e3,
+                tick.getMax() / 1e3);
+        System.out.printf("hash       %016x%n", hash);
+    }
+
+    private static int percentile(int[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /*
+     * Plays one game from start to end and notes how it went in slot g.
+     */
+    private static void play(Results results, int g, String policyName, int maxTicks, int asteroids, long seed) {
+        long start = System.nanoTime();
+        World world = new World(World.mix(seed, g), asteroids);
+        BotPolicy policy = BotPolicy.create(policyName, World.mix(~seed, g));
+        LatencyHistogram tickTime = results.tickTime.get();
+        int t = 0;
+        while (t < maxTicks && !world.isGameOver() && world.getAsteroids().size() > 0) {
+            int controls = policy.controls(world, 0);
+            long begin = System.nanoTime();
+            world.tick(controls);
+            tickTime.record(System.nanoTime() - begin);
+            t++;
+        }
+        results.ticks[g] = t;
+        results.score[g] = world.getScore();
+        results.ending[g] = world.isGameOver() ? DIED : world.getAsteroids().size() == 0 ? CLEARED : TIMED_OUT;
+        results.hash[g] = world.hash();
+        results.gameTime.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Plays games from up to (not including) to, halving the range into subtasks
+     * that idle threads can steal.
+     */
+    private static class Games extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Results results;
+        private final int from, to;
+        private final String policy;
+        private final int maxTicks, asteroids;
+        private final long seed;
+
+        Games(Results results, int from, int to, String policy, int maxTicks, int asteroids, long seed) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.policy = policy;
+            this.maxTicks = maxTicks;
+            this.asteroids = asteroids;
+            this.seed = seed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                for (int g = from; g < to; g++) {
+                    play(results, g, policy, maxTicks, asteroids, seed);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Games(results, from, middle, policy, maxTicks, asteroids, seed),
+                    new Games(results, middle, to, policy, maxTicks, asteroids, seed));
+        }
+    }
+
+    /**
+     * What every game came to, one slot per game, so no two threads write the same
+     * slot. Tick times go to one histogram per thread, so threads don't contend on
+     * every tick, and are added up at the end.
+     */
+    private static class Results {
+        final int[] ticks, score, ending;
+        final long[] hash;
+        final LatencyHistogram gameTime = new LatencyHistogram();
+        final List<LatencyHistogram> tickTimes = new ArrayList<>();
+        final ThreadLocal<LatencyHistogram> tickTime = ThreadLocal.withInitial(() -> {
+            LatencyHistogram histogram = new LatencyHistogram();
+            synchronized (tickTimes) {
+                tickTimes.add(histogram);
+            }
+            return histogram;
+        });
+
+        Results(int games) {
+            ticks = new int[games];
+            score = new int[games];
+            ending = new int[games];
+            hash = new long[games];
+        }
+
+        LatencyHistogram tickTimes() {
+            LatencyHistogram all = new LatencyHistogram();
+            synchronized (tickTimes) {
+                for (LatencyHistogram histogram : tickTimes) {
+                    all.add(histogram);
+                }
+            }
+            return all;
+        }
+    }
+}
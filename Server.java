@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server runs the one true World that every Client plays in. Each tick it reads the
+ * players' INPUT packets, advances the world with everyone's controls, and every few
+ * ticks sends each client a SNAPSHOT of the field.
+ * <p>
+ * Snapshots are numbered, and clients acknowledge the newest one they got in each
+ * INPUT. A client's next snapshot is then sent as a delta against that one (see
+ * NetState), or in full if it has acknowledged nothing recent. Clients sharing a
+ * baseline share one encoding of the field, so the cost of a snapshot grows with the
+ * number of distinct baselines rather than the number of players.
+ * <p>
+ * Packet layouts, after the type byte:
+ * <pre>
+ * JOIN      (nothing)
+ * WELCOME   player, seed, players, max bullets, tick rate, world width and height
+ *           (player is -1 if full)
+ * INPUT     player, acknowledged snapshot, newest input number, count, count controls bytes
+ * SNAPSHOT  number, baseline number (-1 for none), last input applied, own ship x, y,
+ *           rotation, velocity x, y as doubles, then the NetState
+ * LEAVE     player
+ * </pre>
+ * Usage: java Server [port] [players] [asteroids] [seed] [width] [height]
+ * <p>
+ * -Dasteroids.snapshotRate=n sets how many snapshots a second are sent (default: the
+ * tick rate).
+ */
+public class Server {
+    // Snapshots kept as possible baselines; older acknowledgements get a full snapshot
+    static final int HISTORY = 64;
+    // Most inputs a player may queue up before the oldest are skipped, bounding their lag
+    private static final int MAX_QUEUED = 3;
+    // Seconds without hearing from a client before it is dropped, and a ship stays out
+    private static final int TIMEOUT_SECONDS = 10;
+    private static final int RESPAWN_SECONDS = 3;
+
+    /*
+     * What the server knows about one connected player.
+     */
+    private static class Player {
+        final int index;
+        final SocketAddress address;
+        int acknowledged = -1;     // Newest snapshot the client has confirmed
+        int applied = -1;          // Number of the last input used
+        int controls;              // Controls of that input
+        final int[] inputs = new int[HISTORY];  // Inputs received, by number modulo HISTORY
+        int newest = -1;           // Highest input number received
+        long heard;                // Tick the client was last heard from
+
+        Player(int index, SocketAddress address) {
+            this.index = index;
+            this.address = address;
+        }
+    }
+
+    private final Transport transport;
+    private final World world;
+    private final ShapeCatalog catalog = ShapeCatalog.DEFAULT;
+    private final int tickRate;
+    private final int snapshotInterval;
+    private final Player[] slots;
+    private final Map<SocketAddress, Player> players = new HashMap<>();
+    private final int[] controls;
+
+    private final NetState[] history = new NetState[HISTORY];
+    private int seq = -1;
+    private long ticks;
+
+    private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET).order(Protocol.ORDER);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_PACKET).order(Protocol.ORDER);
+    // The field encoded against each baseline this round, by baseline slot; FIELD_NONE for full
+    private final ByteBuffer[] field = new ByteBuffer[HISTORY + 1];
+    private final int[] fieldSeq = new int[HISTORY + 1];
+    private static final int FIELD_NONE = HISTORY;
+
+    private long bytesSent, packetsSent, bytesReceived, fullSnapshots, deltaSnapshots;
+
+    /**
+     * Creates a server.
+     *
+     * @param transport    how to reach the clients
+     * @param world        the world to run, with one ship per player slot
+     * @param tickRate     ticks per second the server will be run at
+     * @param snapshotRate snapshots per second to send
+     */
+    public Server(Transport transport, World world, int tickRate, int snapshotRate) {
+        this.transport = transport;
+        this.world = world;
+        this.tickRate = tickRate;
+        this.snapshotInterval = Math.max(1, tickRate / Math.max(1, snapshotRate));
+        this.slots = new Player[world.getPlayers()];
+        this.controls = new int[world.getPlayers()];
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new NetState();
+        }
+        for (int i = 0; i < field.length; i++) {
+            field[i] = ByteBuffer.allocateDirect(Protocol.MAX_PACKET).order(Protocol.ORDER);
+            fieldSeq[i] = Integer.MIN_VALUE;
+        }
+        world.setRespawnTicks(RESPAWN_SECONDS * tickRate);
+        emptySlots();
+    }
+
+    /**
+     * Runs one server tick: handles every waiting packet, advances the world and,
+     * when one is due, sends a snapshot to every player.
+     *
+     * @throws IOException if the transport fails
+     */
+    public void tick() throws IOException {
+        ticks++;
+        receive();
+
+        for (Player player : slots) {
+            if (player != null) {
+                // Use the player's next input if it has arrived, or keep the last one
+                if (player.applied < player.newest) {
+                    player.applied = Math.max(player.applied + 1, player.newest - MAX_QUEUED);
+                    player.controls = player.inputs[Math.floorMod(player.applied, HISTORY)];
+                }
+                controls[player.index] = player.controls;
+                if (ticks - player.heard > (long) TIMEOUT_SECONDS * tickRate) {
+                    leave(player);
+                }
+            }
+        }
+        world.tick(controls);
+        if (world.getAsteroids().size() == 0) {
+            world.reset();
+            emptySlots();
+        }
+
+        if (ticks % snapshotInterval == 0) {
+            broadcast();
+        }
+    }
+
+    private void receive() throws IOException {
+        in.clear();
+        SocketAddress from;
+        while ((from = transport.receive(in)) != null) {
+            in.flip();
+            bytesReceived += in.remaining();
+            if (in.hasRemaining()) {
+                handle(in.get(), from);
+            }
+            in.clear();
+        }
+    }
+
+    private void handle(byte type, SocketAddress from) throws IOException {
+        Player player = players.get(from);
+        if (type == Protocol.JOIN) {
+            if (player == null) {
+                player = join(from);
+            }
+            out.clear();
+            out.put(Protocol.WELCOME).put((byte) (player == null ? -1 : player.index)).putLong(world.getSeed())
+                    .put((byte) world.getPlayers()).putInt(world.getBullets().capacity()).putInt(tickRate)
+                    .putInt(world.getWidth()).putInt(world.getHeight());
+            out.flip();
+            send(out, from);
+        } else if (player != null && type == Protocol.INPUT && in.remaining() >= 1 + 4 + 4 + 1) {
+            in.get();
+            player.heard = ticks;
+            int ack = in.getInt();
+            if (ack > player.acknowledged && ack <= seq) {
+                player.acknowledged = ack;
+            }
+            int newest = in.getInt();
+            int count = Math.min(in.get() & 0xFF, in.remaining());
+            for (int i = 0; i < count; i++) {
+                int number = newest - count + 1 + i;
+                int bits = in.get();
+                if (number > player.applied) {
+                    player.inputs[Math.floorMod(number, HISTORY)] = bits;
+                }
+            }
+            player.newest = Math.max(player.newest, newest);
+        } else if (player != null && type == Protocol.LEAVE) {
+            leave(player);
+        }
+    }
+
+    private Player join(SocketAddress from) {
+        for (int p = 0; p < slots.length; p++) {
+            if (slots[p] == null) {
+                Player player = new Player(p, from);
+                player.heard = ticks;
+                slots[p] = player;
+                players.put(from, player);
+                world.getShip(p).restore(world.spawnX(p), world.spawnY(p), 0, world.spawnX(p), world.spawnY(p), 0);
+                world.getShip(p).getVelocity().set(0, 0);
+                world.setAlive(p, true);
+                world.setScore(p, 0);
+                return player;
+            }
+        }
+        return null;
+    }
+
+    private void leave(Player player) {
+        slots[player.index] = null;
+        players.remove(player.address);
+        controls[player.index] = 0;
+        world.setAlive(player.index, false);
+    }
+
+    /*
+     * Takes players who aren't connected out of play, e.g. after the field is reset.
+     */
+    private void emptySlots() {
+        for (int p = 0; p < slots.length; p++) {
+            if (slots[p] == null) {
+                world.setAlive(p, false);
+            }
+        }
+    }
+
+    private void broadcast() throws IOException {
+        seq++;
+        NetState state = history[seq % HISTORY];
+        state.capture(world, catalog, seq);
+
+        for (Player player : slots) {
+            if (player == null) {
+                continue;
+            }
+            NetState base = NetState.EMPTY;
+            int slot = FIELD_NONE;
+            if (player.acknowledged >= 0 && seq - player.acknowledged < HISTORY) {
+                base = history[player.acknowledged % HISTORY];
+                slot = player.acknowledged % HISTORY;
+                deltaSnapshots++;
+            } else {
+                fullSnapshots++;
+            }
+            ByteBuffer encoded = field[slot];
+            if (fieldSeq[slot] != seq) {
+                encoded.clear();
+                state.write(encoded, base);
+                encoded.flip();
+                fieldSeq[slot] = seq;
+            }
+
+            Ship ship = world.getShip(player.index);
+            out.clear();
+            out.put(Protocol.SNAPSHOT).putInt(seq).putInt(base == NetState.EMPTY ? -1 : base.seq)
+                    .putInt(player.applied).putDouble(ship.getX()).putDouble(ship.getY())
+                    .putDouble(ship.getRotation()).putDouble(ship.getVelocity().x).putDouble(ship.getVelocity().y);
+            if (out.remaining() < encoded.remaining()) {
+                // Too big for one datagram; the client keeps predicting until a smaller one fits
+                continue;
+            }
+            out.put(encoded.duplicate());
+            out.flip();
+            send(out, player.address);
+        }
+    }
+
+    private void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        bytesSent += packet.remaining();
+        packetsSent++;
+        transport.send(packet, to);
+    }
+
+    public World getWorld() { return world; }
+
+    /**
+     * @return number of players connected
+     */
+    public int getPlayers() { return players.size(); }
+
+    public long getBytesSent() { return bytesSent; }
+
+    public long getPacketsSent() { return packetsSent; }
+
+    public long getBytesReceived() { return bytesReceived; }
+
+    public long getFullSnapshots() { return fullSnapshots; }
+
+    public long getDeltaSnapshots() { return deltaSnapshots; }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int asteroids = args.length > 2 ? Integer.parseInt(args[2]) : World.ASTEROIDS;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int width = args.length > 4 ? Integer.parseInt(args[4]) : World.WIDTH;
+        int height = args.length > 5 ? Integer.parseInt(args[5]) : World.HEIGHT;
+        int tickRate = GameLoop.TICK_RATE;
+        int snapshotRate = Integer.getInteger("asteroids.snapshotRate", tickRate);
+
+        Server server = new Server(new UdpTransport(new InetSocketAddress(port)),
+                new World(seed, asteroids, World.MAX_BULLETS, players, width, height), tickRate, snapshotRate);
+        System.out.printf("Listening on port %d for up to %d players%n", port, players);
+        GameLoop loop = new GameLoop(tickRate, GameLoop.MAX_CATCH_UP, () -> {
+            try {
+                server.tick();
+            } catch (IOException e) {
+                System.err.println("Server tick failed: " + e);
+            }
+            if (server.ticks % (5L * tickRate) == 0) {
+                System.out.printf("%d players, %d asteroids, %.1f KB/s sent%n", server.getPlayers(),
+                        server.world.getAsteroids().size(), server.bytesSent / 1024.0 / (server.ticks / (double) tickRate));
+            }
+        });
+        loop.start();
+        // The loop's thread is a daemon, so keep the process alive until it is killed
+        Thread.currentThread().join();
+    }
+}
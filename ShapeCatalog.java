@@ -0,0 +1,141 @@
+import java.awt.geom.Point2D;
+import java.util.SplittableRandom;
+
+/**
+ * ShapeCatalog is the fixed set of asteroid outlines the game draws from. For every
+ * size there are a number of variants: the first is the classic hand-drawn rock, the
+ * rest are generated from a seed as jagged rings of points. Every template is built
+ * once, when the catalog is created, and then shared by all the asteroids using it.
+ */
+public final class ShapeCatalog {
+    /**
+     * Asteroid sizes, largest first, as a scale of the classic rock.
+     */
+    public enum Size {
+        LARGE(1), MEDIUM(0.5), SMALL(0.25);
+
+        private final double scale;
+
+        Size(double scale) {
+            this.scale = scale;
+        }
+
+        public double getScale() { return scale; }
+
+        /**
+         * @return the next size down, or null for the smallest
+         */
+        public Size smaller() {
+            return ordinal() + 1 < SIZES.length ? SIZES[ordinal() + 1] : null;
+        }
+    }
+
+    // Size.values() copies its array on every call, so it is kept once here
+    private static final Size[] SIZES = Size.values();
+
+    // The outline every asteroid used to have
+    private static final double[][] CLASSIC = {{540, 65}, {585, 80}, {600, 40}, {530, 50}, {520, 68}, {540, 65}};
+
+    // The catalog used by World
+    public static final ShapeCatalog DEFAULT = new ShapeCatalog(8, 0x5EED_A57E_B01DL);
+
+    private final ShapeTemplate[][] templates;
+
+    /**
+     * Builds a catalog.
+     *
+     * @param variants number of outlines per size, at least 1
+     * @param seed     seed for the generated outlines
+     */
+    public ShapeCatalog(int variants, long seed) {
+        Point2D.Double[] classic = new Point2D.Double[CLASSIC.length];
+        for (int i = 0; i < classic.length; i++) {
+            classic[i] = new Point2D.Double(CLASSIC[i][0], CLASSIC[i][1]);
+        }
+        Point2D.Double[][] outlines = new Point2D.Double[variants][];
+        outlines[0] = classic;
+        ShapeTemplate[] base = new ShapeTemplate[variants];
+        base[0] = new ShapeTemplate(classic);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int v = 1; v < variants; v++) {
+            outlines[v] = generate(random, base[0].getBoundingRadius());
+            base[v] = new ShapeTemplate(outlines[v]);
+        }
+
+        //Each template is built for this catalog, so it carries its id from the start
+        templates = new ShapeTemplate[SIZES.length][];
+        for (Size size : SIZES) {
+            ShapeTemplate[] row = templates[size.ordinal()] = new ShapeTemplate[variants];
+            for (int v = 0; v < variants; v++) {
+                int id = size.ordinal() * variants + v;
+                row[v] = size.scale == 1 ? new ShapeTemplate(outlines[v], this, id) : base[v].scaled(size.scale, this, id);
+            }
+        }
+    }
+
+    /**
+     * A number standing for one of the catalog's templates, for saving which outline an
+     * asteroid has.
+     *
+     * @param template a template from this catalog
+     * @return its id, or -1 if it isn't from this catalog
+     */
+    public int id(ShapeTemplate template) {
+        return template.catalog == this ? template.catalogId : -1;
+    }
+
+    /**
+     * @param id a number returned by id()
+     * @return the template it stands for
+     */
+    public ShapeTemplate get(int id) {
+        return templates[id / getVariants()][id % getVariants()];
+    }
+
+    /**
+     * @param template a template from this catalog
+     * @return which size it is
+     */
+    public Size getSize(ShapeTemplate template) {
+        return SIZES[id(template) / getVariants()];
+    }
+
+    /**
+     * @param template a template from this catalog
+     * @return which outline it is, the same for every size
+     */
+    public int getVariant(ShapeTemplate template) {
+        return id(template) % getVariants();
+    }
+
+    /**
+     * @param size    size of asteroid
+     * @param variant which outline, from 0 to getVariants() - 1
+     * @return the shared template
+     */
+    public ShapeTemplate get(Size size, int variant) {
+        return templates[size.ordinal()][variant];
+    }
+
+    /**
+     * @return number of outlines per size
+     */
+    public int getVariants() {
+        return templates[0].length;
+    }
+
+    /*
+     * A rough ring of 7 to 11 points, each at a random distance between 60% and 100%
+     * of the radius, so the outline is lumpy but never folds over itself.
+     */
+    private static Point2D.Double[] generate(SplittableRandom random, double radius) {
+        int n = 7 + random.nextInt(5);
+        Point2D.Double[] shape = new Point2D.Double[n];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * (i + random.nextDouble(-0.3, 0.3)) / n;
+            double distance = radius * random.nextDouble(0.6, 1);
+            shape[i] = new Point2D.Double(radius + distance * Math.cos(angle), radius + distance * Math.sin(angle));
+        }
+        return shape;
+    }
+}
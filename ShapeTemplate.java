@@ -0,0 +1,183 @@
+import java.awt.geom.Point2D;
+
+/**
+ * ShapeTemplate is the part of a polygon that never changes: its outline and everything
+ * worked out from it, such as the centroid, area and bounding radius. It is immutable,
+ * so any number of polygons can share one template and hold only their own position
+ * and rotation. A template a ShapeCatalog builds also carries that catalog and its id
+ * there, fixed at construction.
+ * <p>
+ * As with Polygon, only the relative positions of the points matter: the outline is
+ * moved so its top-most left-most boundary is at the origin.
+ */
+public final class ShapeTemplate {
+    private final Point2D.Double center;   // Centroid of the outline
+    private final double[] localX, localY; // Each point relative to the centroid
+    private final double area;
+    private final double boundingRadius;   // Farthest any point is from the centroid
+    private final boolean convex;          // Whether every turn along the outline is the same way
+    private final boolean reversed;        // Whether the points wind the opposite way to most outlines
+
+    // The catalog that built this template and its id there, so looking it up is a field read
+    final ShapeCatalog catalog;
+    final int catalogId;
+
+    /**
+     * Creates a template from an outline. The points are copied, not kept.
+     *
+     * @param shape array of points specifying the shape
+     */
+    public ShapeTemplate(Point2D.Double[] shape) {
+        this(shape, null, -1);
+    }
+
+    /*
+     * Creates a template from an outline on behalf of a catalog, under the given id.
+     */
+    ShapeTemplate(Point2D.Double[] shape, ShapeCatalog catalog, int catalogId) {
+        this.catalog = catalog;
+        this.catalogId = catalogId;
+        // First, we find the shape's top-most left-most boundary, its origin.
+        double left = shape[0].getX();
+        double top = shape[0].getY();
+        for (Point2D.Double p : shape) {
+            left = Math.min(left, p.getX());
+            top = Math.min(top, p.getY());
+        }
+
+        // Then, we orient all of its points relative to the real origin.
+        int n = shape.length;
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = shape[i].getX() - left;
+            y[i] = shape[i].getY() - top;
+        }
+
+        reversed = signedArea(x, y) < 0;
+        area = Math.abs(signedArea(x, y));
+        center = findCenter(x, y, area);
+        localX = new double[n];
+        localY = new double[n];
+        double farthest = 0;
+        for (int i = 0; i < n; i++) {
+            localX[i] = x[i] - center.x;
+            localY[i] = y[i] - center.y;
+            farthest = Math.max(farthest, Math.hypot(localX[i], localY[i]));
+        }
+        boundingRadius = farthest;
+
+        //A repeated point, such as one closing the outline, makes an edge of no length, which
+        //would hide the turn between the edges either side of it, so only distinct points count
+        int[] corner = new int[n];
+        int corners = 0;
+        for (int i = 0; i < n; i++) {
+            int previous = (i + n - 1) % n;
+            if (localX[i] != localX[previous] || localY[i] != localY[previous]) {
+                corner[corners++] = i;
+            }
+        }
+        int leftTurns = 0, rightTurns = 0;
+        for (int c = 0; c < corners; c++) {
+            int i = corner[c], j = corner[(c + 1) % corners], k = corner[(c + 2) % corners];
+            double turn = (localX[j] - localX[i]) * (localY[k] - localY[j])
+                    - (localY[j] - localY[i]) * (localX[k] - localX[j]);
+            if (turn > 0) {
+                leftTurns++;
+            } else if (turn < 0) {
+                rightTurns++;
+            }
+        }
+        convex = leftTurns == 0 || rightTurns == 0;
+    }
+
+    /**
+     * Makes a copy of this template scaled about its top-left corner.
+     *
+     * @param factor how much larger to make it, e.g. 0.5 for half size
+     * @return the scaled template
+     */
+    public ShapeTemplate scaled(double factor) {
+        return scaled(factor, null, -1);
+    }
+
+    /*
+     * Makes a scaled copy of this template on behalf of a catalog, under the given id.
+     */
+    ShapeTemplate scaled(double factor, ShapeCatalog catalog, int catalogId) {
+        Point2D.Double[] shape = new Point2D.Double[size()];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = new Point2D.Double((center.x + localX[i]) * factor, (center.y + localY[i]) * factor);
+        }
+        return new ShapeTemplate(shape, catalog, catalogId);
+    }
+
+    /**
+     * @return number of points in the outline
+     */
+    public int size() { return localX.length; }
+
+    /**
+     * @return x coordinate of point i relative to the centroid
+     */
+    public double getX(int i) { return localX[i]; }
+
+    /**
+     * @return y coordinate of point i relative to the centroid
+     */
+    public double getY(int i) { return localY[i]; }
+
+    /**
+     * @return x coordinate of the centroid, from the top-left corner of the outline
+     */
+    public double getCenterX() { return center.x; }
+
+    /**
+     * @return y coordinate of the centroid, from the top-left corner of the outline
+     */
+    public double getCenterY() { return center.y; }
+
+    public double getArea() { return area; }
+
+    /**
+     * @return distance from the centroid to the farthest point
+     */
+    public double getBoundingRadius() { return boundingRadius; }
+
+    /**
+     * @return true if the outline is convex
+     */
+    public boolean isConvex() { return convex; }
+
+    /**
+     * Whether the points go round the other way, so that outlines drawn together in one
+     * path can all be made to wind the same way and never cancel out where they overlap.
+     *
+     * @return true if the points are listed counter-clockwise on screen
+     */
+    public boolean isReversed() { return reversed; }
+
+    /*
+     * Magic math that finds the area of the polygon. Used to determine the center.
+     * Negative if the points go round counter-clockwise on screen.
+     */
+    private static double signedArea(double[] x, double[] y) {
+        double sum = 0;
+        for (int i = 0, j = 1; i < x.length; i++, j = (j + 1) % x.length) {
+            sum += x[i] * y[j] - x[j] * y[i];
+        }
+        return sum / 2;
+    }
+
+    /*
+     * Magic math that finds the center of the shape.
+     */
+    private static Point2D.Double findCenter(double[] x, double[] y, double area) {
+        double sumX = 0, sumY = 0;
+        for (int i = 0, j = 1; i < x.length; i++, j = (j + 1) % x.length) {
+            double cross = x[i] * y[j] - x[j] * y[i];
+            sumX += (x[i] + x[j]) * cross;
+            sumY += (y[i] + y[j]) * cross;
+        }
+        return new Point2D.Double(Math.abs(sumX / (6 * area)), Math.abs(sumY / (6 * area)));
+    }
+}
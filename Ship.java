@@ -3,8 +3,11 @@ import java.awt.geom.Point2D;
 import java.security.PublicKey;
 
 public class Ship extends Polygon{
-    private boolean thrust;
-    private Point2D.Double velocity;
+    private volatile boolean thrust;
+    private final Vec2 velocity = new Vec2();
+    private final Vec2 heading = new Vec2();  // Scratch for accelerate()
+    // Colors a ship is drawn in
+    public static final Color OUTLINE = Color.gray, FILL = Color.blue;
     /**
      * Creates a polygon with the specified shape, position, and rotation.
      *
@@ -12,18 +15,19 @@ public class Ship extends Polygon{
      * @param rotation orientation of the polygon
      */
     public Ship(Point2D.Double position, double rotation) {
-        super(makeShape(), position, rotation);
+        super(SHAPE, position, rotation);
         thrust = false;
-        velocity = new Point2D.Double(0,0);
     }
 
+    // Every ship has the same outline
+    private static final ShapeTemplate SHAPE = new ShapeTemplate(makeShape());
+
     private static Point2D.Double[] makeShape(){
         return new Point2D.Double[]{new Point2D.Double(400, 300),new Point2D.Double(390, 310),new Point2D.Double(420, 300),new Point2D.Double(390, 290)};
     }
 
     public void accelerate (double acceleration) {
-        velocity.x += acceleration * Math.cos(Math.toRadians(rotation));
-        velocity.y += acceleration * Math.sin(Math.toRadians(rotation));
+        velocity.addScaled(heading.setHeading(rotation), acceleration);
     }
 
 
@@ -34,30 +38,32 @@ public class Ship extends Polygon{
         }
         position.x = velocity.x + position.x;
         position.y = velocity.y + position.y;
-        if(position.x > 800){
-            position.x = 0;
-        } else if (position.x < 0) {
-            position.x = 800;
-        }
-        if (position.y > 600){
-            position.y = 0;
-        } else if (position.y < 0) {
-            position.y = 600;
-        }
+        wrap();
     }
 
     //public void shoot{
 
     //}
     public void paint(Graphics brush) {
-        outline(brush,Color.gray);
-        fill(brush,Color.blue);
+        outline(brush,OUTLINE);
+        fill(brush,FILL);
     }
 
     public void thrust(boolean thrust) {
         this.thrust = thrust;
     }
 
+    public boolean isThrusting() {
+        return thrust;
+    }
+
+    /**
+     * @return the ship's velocity; changes to it change the ship's
+     */
+    public Vec2 getVelocity() {
+        return velocity;
+    }
+
 
 
 }
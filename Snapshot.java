@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Snapshot holds one saved state of a World in a direct ByteBuffer. The buffer is kept
+ * and reused by every capture(), and only grows when the world has grown past it, so
+ * taking a snapshot every tick allocates nothing. A snapshot can also be written to
+ * and read back from a file, to checkpoint long runs.
+ */
+public class Snapshot {
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Creates an empty snapshot.
+     *
+     * @param capacity bytes to make room for up front
+     */
+    public Snapshot(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity).order(ORDER);
+        buffer.limit(0);
+    }
+
+    /**
+     * Saves the current state of a world, replacing whatever this snapshot held.
+     *
+     * @param world the world to save
+     */
+    public void capture(World world) {
+        int size = world.snapshotSize();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2)).order(ORDER);
+        }
+        buffer.clear();
+        world.save(buffer);
+        buffer.flip();
+    }
+
+    /**
+     * Puts a world back in the state this snapshot holds.
+     *
+     * @param world a world created with the same seed, asteroid count and setup as the one saved
+     * @throws IllegalStateException    if nothing has been captured or read yet
+     * @throws IllegalArgumentException if the snapshot doesn't fit the world
+     */
+    public void restore(World world) {
+        if (isEmpty()) {
+            throw new IllegalStateException("Empty snapshot");
+        }
+        buffer.rewind();
+        world.restore(buffer);
+        buffer.rewind();
+    }
+
+    /**
+     * @return true if nothing has been captured or read yet
+     */
+    public boolean isEmpty() {
+        return buffer.limit() == 0;
+    }
+
+    /**
+     * @return seed of the saved world, for creating a world to restore into
+     */
+    public long getSeed() {
+        return buffer.getLong(World.SNAPSHOT_SEED);
+    }
+
+    /**
+     * @return asteroid count the saved world was created with
+     */
+    public int getAsteroidCount() {
+        return buffer.getInt(World.SNAPSHOT_ASTEROIDS);
+    }
+
+    /**
+     * @return number of players in the saved world
+     */
+    public int getPlayers() {
+        return buffer.getInt(World.SNAPSHOT_PLAYERS);
+    }
+
+    /**
+     * @return width of the saved world
+     */
+    public int getWidth() {
+        return buffer.getInt(World.SNAPSHOT_WIDTH);
+    }
+
+    /**
+     * @return height of the saved world
+     */
+    public int getHeight() {
+        return buffer.getInt(World.SNAPSHOT_HEIGHT);
+    }
+
+    /**
+     * @return most bullets the saved world could have in flight at once
+     */
+    public int getMaxBullets() {
+        return buffer.getInt(World.SNAPSHOT_BULLETS);
+    }
+
+    /**
+     * @return number of ticks the saved world had run
+     */
+    public long getTicks() {
+        return buffer.getLong(World.SNAPSHOT_TICKS);
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it if it exists.
+     *
+     * @param file where to write
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = buffer.duplicate();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot written by write().
+     *
+     * @param file where to read from
+     * @return the snapshot
+     * @throws IOException if the file can't be read or doesn't hold a snapshot of this version
+     */
+    public static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Snapshot snapshot = new Snapshot((int) channel.size());
+            ByteBuffer in = snapshot.buffer;
+            in.clear();
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+            }
+            in.flip();
+            if (in.limit() < World.SNAPSHOT_BULLETS + 4 || in.getInt(0) != World.SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a world snapshot");
+            }
+            if (in.getInt(4) != World.SNAPSHOT_VERSION) {
+                throw new IOException(file + " is a snapshot from version " + in.getInt(4));
+            }
+            return snapshot;
+        }
+    }
+}
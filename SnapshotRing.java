@@ -0,0 +1,62 @@
+/**
+ * SnapshotRing keeps the last few ticks of a game, one Snapshot per tick, so play can
+ * be rewound or a lost life instantly retried. Once full, each new snapshot replaces
+ * the oldest. All the snapshots' buffers are reused, so keeping the ring costs a
+ * single save() per tick.
+ */
+public class SnapshotRing {
+    private final Snapshot[] slots;
+    private int newest = -1;   // Index of the most recent snapshot
+    private int count;
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param length   number of snapshots to keep
+     * @param capacity bytes each snapshot makes room for up front
+     */
+    public SnapshotRing(int length, int capacity) {
+        slots = new Snapshot[length];
+        for (int i = 0; i < length; i++) {
+            slots[i] = new Snapshot(capacity);
+        }
+    }
+
+    /**
+     * Saves the world's current state as the newest snapshot.
+     *
+     * @param world the world to save
+     */
+    public void push(World world) {
+        newest = (newest + 1) % slots.length;
+        slots[newest].capture(world);
+        count = Math.min(count + 1, slots.length);
+    }
+
+    /**
+     * Restores the world to how it was a number of snapshots ago, and forgets every
+     * snapshot newer than that one. Rewinding further back than the ring reaches
+     * stops at the oldest snapshot.
+     *
+     * @param world the world to restore
+     * @param steps how many snapshots to go back; 0 restores the newest
+     * @return true if the world was restored, false if the ring is empty
+     */
+    public boolean rewind(World world, int steps) {
+        if (count == 0) {
+            return false;
+        }
+        steps = Math.min(steps, count - 1);
+        newest = Math.floorMod(newest - steps, slots.length);
+        count -= steps;
+        slots[newest].restore(world);
+        return true;
+    }
+
+    /**
+     * @return how many snapshots the ring holds
+     */
+    public int size() {
+        return count;
+    }
+}
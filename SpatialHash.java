@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+/**
+ * SpatialHash is the collision broad phase: a uniform grid laid over the wrap-around
+ * world. Each tick it is cleared and every collidable item is inserted into the cells
+ * its bounding box touches. A query then only returns the items sharing a cell with
+ * the query box, which are passed on to the exact (narrow phase) tests.
+ * <p>
+ * Cell coordinates wrap like positions do in Ship.update and Asteroid.update, so a box
+ * hanging off the right edge of the world also lands in the cells on the left edge. For
+ * that to line up, the cells are stretched a little so a whole number of them spans the
+ * world exactly.
+ * Items are identified by small non-negative ints, typically list indices.
+ * <p>
+ * Once filled, the grid may be queried from several threads at once, as long as each
+ * thread passes its own Query to hold its results.
+ */
+public class SpatialHash {
+    private final double cellWidth, cellHeight;
+    private final int columns, rows;
+
+    private final int[] head;    // First entry in each cell, or -1
+    private int[] next;          // Next entry in the same cell, or -1
+    private int[] item;          // Item stored by each entry
+    private int entries;
+
+    private int items;           // One more than the largest id inserted
+    private int reserved;        // Items reserve() has made room for
+    private final Query query = new Query();
+
+    /**
+     * Scratch space for one thread's queries: which items it has already reported,
+     * and the candidates it found.
+     */
+    public static class Query {
+        private int[] mark = new int[64]; // Query stamp each item was last reported under
+        private int stamp;
+        private int[] results = new int[16];
+
+        /**
+         * The candidates found by the last query made with this object. Only the
+         * first query() entries are valid.
+         *
+         * @return candidate item ids
+         */
+        public int[] results() {
+            return results;
+        }
+    }
+
+    /**
+     * Creates a grid covering a world of the given size.
+     *
+     * @param width    width of the world
+     * @param height   height of the world
+     * @param cellSize smallest side length of a cell, ideally about the size of the largest item
+     */
+    public SpatialHash(double width, double height, double cellSize) {
+        this.columns = Math.max(1, (int) Math.floor(width / cellSize));
+        this.rows = Math.max(1, (int) Math.floor(height / cellSize));
+        this.cellWidth = width / columns;
+        this.cellHeight = height / rows;
+        head = new int[columns * rows];
+        next = new int[64];
+        item = new int[64];
+        clear();
+    }
+
+    /**
+     * Makes room for up to the given number of items, none wider or taller than size,
+     * so inserting them and querying with the grid's own Query never grows an array.
+     *
+     * @param items number of items
+     * @param size  largest width or height of an item's bounding box
+     */
+    public void reserve(int items, double size) {
+        //A box spans one cell more than fits inside it, where it straddles a cell edge
+        int spanX = (int) Math.floor(size / cellWidth) + 2;
+        int spanY = (int) Math.floor(size / cellHeight) + 2;
+        int entries = items * Math.min(spanX, columns) * Math.min(spanY, rows);
+        if (item.length < entries) {
+            next = Arrays.copyOf(next, entries);
+            item = Arrays.copyOf(item, entries);
+        }
+        reserved = Math.max(reserved, items);
+        reserve(query);
+    }
+
+    /**
+     * Makes room in another thread's Query for as many items as reserve() was given.
+     *
+     * @param q scratch space to size
+     */
+    public void reserve(Query q) {
+        if (q.mark.length < reserved) {
+            q.mark = Arrays.copyOf(q.mark, reserved);
+        }
+        if (q.results.length < reserved) {
+            q.results = Arrays.copyOf(q.results, reserved);
+        }
+    }
+
+    /**
+     * Removes every item, ready for the next tick's inserts.
+     */
+    public void clear() {
+        Arrays.fill(head, -1);
+        entries = 0;
+        items = 0;
+    }
+
+    /**
+     * Adds an item to every cell its bounding box overlaps.
+     *
+     * @param id   identifier reported back by queries
+     * @param minX left edge of the item
+     * @param minY top edge of the item
+     * @param maxX right edge of the item
+     * @param maxY bottom edge of the item
+     */
+    public void insert(int id, double minX, double minY, double maxX, double maxY) {
+        items = Math.max(items, id + 1);
+        int firstColumn = column(minX), lastColumn = column(maxX);
+        int firstRow = row(minY), lastRow = row(maxY);
+        int spanX = Math.min(lastColumn - firstColumn, columns - 1);
+        int spanY = Math.min(lastRow - firstRow, rows - 1);
+        for (int y = 0; y <= spanY; y++) {
+            int row = Math.floorMod(firstRow + y, rows);
+            for (int x = 0; x <= spanX; x++) {
+                int index = row * columns + Math.floorMod(firstColumn + x, columns);
+                if (entries == item.length) {
+                    next = Arrays.copyOf(next, entries * 2);
+                    item = Arrays.copyOf(item, entries * 2);
+                }
+                item[entries] = id;
+                next[entries] = head[index];
+                head[index] = entries++;
+            }
+        }
+    }
+
+    /**
+     * Finds every item that shares a cell with the given box. Each item is reported
+     * once even if it overlaps several of the box's cells.
+     *
+     * @param minX left edge of the box
+     * @param minY top edge of the box
+     * @param maxX right edge of the box
+     * @param maxY bottom edge of the box
+     * @return number of candidates, which are read from results()
+     */
+    public int query(double minX, double minY, double maxX, double maxY) {
+        return query(query, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Finds every item that shares a cell with the given box, like query(minX, minY, maxX, maxY),
+     * but keeps its working state and results in the given Query so other threads can query too.
+     *
+     * @param q    this thread's scratch space
+     * @param minX left edge of the box
+     * @param minY top edge of the box
+     * @param maxX right edge of the box
+     * @param maxY bottom edge of the box
+     * @return number of candidates, which are read from q.results()
+     */
+    public int query(Query q, double minX, double minY, double maxX, double maxY) {
+        if (q.mark.length < items) {
+            q.mark = Arrays.copyOf(q.mark, Math.max(items, q.mark.length * 2));
+        }
+        if (++q.stamp == 0) {
+            Arrays.fill(q.mark, 0);
+            q.stamp = 1;
+        }
+        int[] mark = q.mark;
+        int stamp = q.stamp;
+        int[] results = q.results;
+        int found = 0;
+        int firstColumn = column(minX), lastColumn = column(maxX);
+        int firstRow = row(minY), lastRow = row(maxY);
+        int spanX = Math.min(lastColumn - firstColumn, columns - 1);
+        int spanY = Math.min(lastRow - firstRow, rows - 1);
+        for (int y = 0; y <= spanY; y++) {
+            int row = Math.floorMod(firstRow + y, rows);
+            for (int x = 0; x <= spanX; x++) {
+                int index = row * columns + Math.floorMod(firstColumn + x, columns);
+                for (int e = head[index]; e != -1; e = next[e]) {
+                    int id = item[e];
+                    if (mark[id] != stamp) {
+                        mark[id] = stamp;
+                        if (found == results.length) {
+                            results = q.results = Arrays.copyOf(results, found * 2);
+                        }
+                        results[found++] = id;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The candidates found by the last query. Only the first query() entries are valid,
+     * and the array is overwritten by the next query.
+     *
+     * @return candidate item ids
+     */
+    public int[] results() {
+        return query.results;
+    }
+
+    private int column(double x) {
+        return (int) Math.floor(x / cellWidth);
+    }
+
+    private int row(double y) {
+        return (int) Math.floor(y / cellHeight);
+    }
+}
@@ -0,0 +1,36 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Transport moves datagrams between a Server and its Clients. Delivery may be lost or
+ * reordered, like UDP, so the protocol on top never relies on a packet arriving.
+ * Both calls return immediately: the game polls for packets once a tick rather than
+ * blocking on them.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Sends the remaining bytes of a packet.
+     *
+     * @param packet bytes to send, from its position to its limit
+     * @param to     address of the receiver
+     * @throws IOException if the packet can't be sent
+     */
+    void send(ByteBuffer packet, SocketAddress to) throws IOException;
+
+    /**
+     * Takes the next waiting packet, if any.
+     *
+     * @param into buffer to copy the packet into, from its position
+     * @return address of the sender, or null if nothing was waiting
+     * @throws IOException if reading fails
+     */
+    SocketAddress receive(ByteBuffer into) throws IOException;
+
+    /**
+     * @return the address others send to to reach this end
+     */
+    SocketAddress getLocalAddress();
+}
@@ -0,0 +1,40 @@
+/**
+ * Trig gives the sine and cosine of angles in degrees. Polygon.rotate(int) only ever
+ * produces whole degrees, so those are looked up in a 360 entry table instead of being
+ * recomputed; any other angle falls back to Math. The table holds exactly what
+ * Math.cos(Math.toRadians(d)) returns, so the two paths agree to the last bit and the
+ * game plays out the same either way.
+ */
+public final class Trig {
+    private static final double[] COS = new double[360];
+    private static final double[] SIN = new double[360];
+
+    static {
+        for (int d = 0; d < 360; d++) {
+            double radians = Math.toRadians(d);
+            COS[d] = Math.cos(radians);
+            SIN[d] = Math.sin(radians);
+        }
+    }
+
+    private Trig() {
+    }
+
+    /**
+     * @param degrees angle in degrees
+     * @return cosine of the angle
+     */
+    public static double cos(double degrees) {
+        int d = (int) degrees;
+        return d == degrees && d >= 0 && d < 360 ? COS[d] : Math.cos(Math.toRadians(degrees));
+    }
+
+    /**
+     * @param degrees angle in degrees
+     * @return sine of the angle
+     */
+    public static double sin(double degrees) {
+        int d = (int) degrees;
+        return d == degrees && d >= 0 && d < 360 ? SIN[d] : Math.sin(Math.toRadians(degrees));
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * UdpTransport sends packets as UDP datagrams through a non-blocking DatagramChannel.
+ */
+public class UdpTransport implements Transport {
+    private final DatagramChannel channel;
+
+    /**
+     * Opens a socket.
+     *
+     * @param address address to listen on; port 0 picks any free port
+     * @throws IOException if the socket can't be opened
+     */
+    public UdpTransport(InetSocketAddress address) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(address);
+    }
+
+    @Override
+    public void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        channel.send(packet, to);
+    }
+
+    @Override
+    public SocketAddress receive(ByteBuffer into) throws IOException {
+        return channel.receive(into);
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        try {
+            return channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
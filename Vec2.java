@@ -0,0 +1,56 @@
+/**
+ * Vec2 is a mutable 2D vector for physics. Unlike Point2D it is meant to be changed in
+ * place: every operation writes into this vector and returns it, so per-tick math can
+ * run on a few long-lived vectors without creating new ones.
+ */
+public final class Vec2 {
+    public double x, y;
+
+    public Vec2() {
+    }
+
+    public Vec2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public Vec2 set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vec2 set(Vec2 other) {
+        return set(other.x, other.y);
+    }
+
+    public Vec2 add(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    /**
+     * Adds other multiplied by scale, e.g. a heading times a speed.
+     *
+     * @return this vector
+     */
+    public Vec2 addScaled(Vec2 other, double scale) {
+        return add(other.x * scale, other.y * scale);
+    }
+
+    /**
+     * Sets this vector to the unit vector pointing the given number of degrees
+     * clockwise from due east.
+     *
+     * @return this vector
+     */
+    public Vec2 setHeading(double degrees) {
+        return set(Trig.cos(degrees), Trig.sin(degrees));
+    }
+
+    @Override
+    public String toString() {
+        return "Vec2[" + x + ", " + y + "]";
+    }
+}
@@ -0,0 +1,145 @@
+import java.awt.BasicStroke;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+
+/**
+ * View is where a frame is drawn and how the world fits into it. A frame is rendered at
+ * the window's size times a scale: below 1 it has fewer pixels to fill and is stretched
+ * up to the window, above 1 it is sharper and shrunk down. The world is scaled, the
+ * same amount both ways, to the largest size that fits the frame and centered in it,
+ * so a world of any size shows whole in a window of any size.
+ * <p>
+ * Three sets of coordinates meet here: world units, which the game is played in;
+ * window pixels, which the score and overlays are laid out in; and screen pixels,
+ * the pixels of the frame actually being rendered. A view is fixed once made, so
+ * a window that changes size gets a new one.
+ */
+public class View {
+    private final int width, height;    // Size of the frame, in screen pixels
+    private final double scale;         // Screen pixels per window pixel
+    private final double worldScale;    // Screen pixels per world unit
+    private final double x, y;          // Where the world's corner lands, in screen pixels
+    private final AffineTransform world;
+    private final BasicStroke stroke;
+
+    /**
+     * Creates a view of a world in a window.
+     *
+     * @param windowWidth  width of the window
+     * @param windowHeight height of the window
+     * @param scale        screen pixels to render per window pixel
+     * @param worldWidth   width of the world
+     * @param worldHeight  height of the world
+     */
+    public View(int windowWidth, int windowHeight, double scale, double worldWidth, double worldHeight) {
+        this.width = Math.max(1, (int) Math.round(windowWidth * scale));
+        this.height = Math.max(1, (int) Math.round(windowHeight * scale));
+        this.scale = scale;
+        this.worldScale = Math.min(width / worldWidth, height / worldHeight);
+        this.x = (width - worldWidth * worldScale) / 2;
+        this.y = (height - worldHeight * worldScale) / 2;
+        world = new AffineTransform(worldScale, 0, 0, worldScale, x, y);
+        //Joins are rounded when widened, as the miters of sharp corners would reach past the bounds
+        stroke = worldScale >= 1 ? new BasicStroke()
+                : new BasicStroke((float) (1 / worldScale), BasicStroke.CAP_SQUARE, BasicStroke.JOIN_ROUND);
+    }
+
+    /**
+     * @return width of the frame, in screen pixels
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * @return height of the frame, in screen pixels
+     */
+    public int getHeight() { return height; }
+
+    /**
+     * @return screen pixels per window pixel
+     */
+    public double getScale() { return scale; }
+
+    /**
+     * @return screen pixels per world unit
+     */
+    public double getWorldScale() { return worldScale; }
+
+    /**
+     * @return x coordinate of the world's top left corner, in screen pixels
+     */
+    public double getX() { return x; }
+
+    /**
+     * @return y coordinate of the world's top left corner, in screen pixels
+     */
+    public double getY() { return y; }
+
+    /**
+     * @return the transform from world units to screen pixels; it is shared, so it must
+     * not be modified
+     */
+    public AffineTransform getWorldTransform() { return world; }
+
+    /**
+     * @return the stroke to outline things in the world with: one world unit wide, but
+     * never less than a screen pixel, so a big world shrunk to fit doesn't fade out
+     */
+    public BasicStroke getStroke() { return stroke; }
+
+    /**
+     * Finds the screen pixels an area of the world covers, rounding outwards, so
+     * anything drawn inside the area is inside the result. Bounds leave a couple of
+     * world units for outlines and smoothing, which is too little once a unit is less
+     * than a pixel, so the same room is added again in pixels.
+     *
+     * @param area area of the world
+     * @param out  rectangle to store the pixels in; may be area itself
+     */
+    public void worldToScreen(Rectangle area, Rectangle out) {
+        map(area, worldScale, x, y, worldScale == 1 ? 0 : 2, out);
+    }
+
+    /**
+     * Finds the part of the world a block of screen pixels shows, rounding outwards and
+     * with room for outlines, which are at least a pixel wide however small a world unit.
+     *
+     * @param area block of screen pixels
+     * @param out  rectangle to store the world area in; may be area itself
+     */
+    public void screenToWorld(Rectangle area, Rectangle out) {
+        map(area, 1 / worldScale, -x / worldScale, -y / worldScale, worldScale == 1 ? 0 : 2 / worldScale, out);
+    }
+
+    /**
+     * Finds the screen pixels an area of the window covers, rounding outwards.
+     *
+     * @param area area of the window
+     * @param out  rectangle to store the pixels in; may be area itself
+     */
+    public void windowToScreen(Rectangle area, Rectangle out) {
+        map(area, scale, 0, 0, scale == 1 ? 0 : 1, out);
+    }
+
+    /**
+     * Finds the window pixels a block of screen pixels ends up on, rounding outwards and
+     * with room for the smoothing of the stretch, which blends each pixel with its neighbors.
+     *
+     * @param area block of screen pixels
+     * @param out  rectangle to store the window area in; may be area itself
+     */
+    public void screenToWindow(Rectangle area, Rectangle out) {
+        map(area, 1 / scale, 0, 0, scale == 1 ? 0 : 1 / scale, out);
+    }
+
+    /*
+     * Scales and moves a rectangle, grows it by a margin on every side, in the units it is
+     * mapped to, and then to whole units.
+     */
+    private static void map(Rectangle area, double factor, double dx, double dy, double margin, Rectangle out) {
+        int left = (int) Math.floor(area.x * factor + dx - margin);
+        int top = (int) Math.floor(area.y * factor + dy - margin);
+        int right = (int) Math.ceil((area.x + area.width) * factor + dx + margin);
+        int bottom = (int) Math.ceil((area.y + area.height) * factor + dy + margin);
+        out.setBounds(left, top, right - left, bottom - top);
+    }
+}
@@ -0,0 +1,857 @@
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * World holds the complete state of one game and advances it one tick at a time.
+ * It knows nothing about windows or keyboards: each tick is driven by a bitmask of
+ * controls, and all randomness comes from the seed: the starting field from a seeded
+ * SplittableRandom, and each tick's random choices from the seed mixed with the tick
+ * number. The same seed and the same controls therefore always produce the same game,
+ * with or without a display. Because a tick depends only on the state and the tick
+ * number, the whole game can be saved with save() and picked up again with restore().
+ * <p>
+ * A world may hold several ships, one per player, each steered by its own control bits.
+ * A ship that hits an asteroid is out; with setRespawnTicks() it comes back at its
+ * starting point after a while, otherwise the game is over once every ship is out.
+ * Each asteroid's tag in the store is a stable id, and each bullet's tag is the player
+ * who fired it.
+ * <p>
+ * A shot asteroid breaks into two of the next size down, and the smallest simply
+ * disappear. Hits only mark asteroids; the pieces are queued and the store is changed
+ * once every hit of the tick is known, with the pieces drawn from an AsteroidPool that
+ * reset() fills for the worst case. reset() also sizes the asteroid store, the grid and
+ * the collision buffers for every asteroid broken down to its smallest pieces, so even
+ * a tick full of splits allocates nothing.
+ * <p>
+ * The update, broad phase and narrow phase can be spread over several threads with
+ * setParallelism(). Work is split into fixed chunks whose results are merged in a fixed
+ * order, so a parallel world plays exactly the same game as a serial one.
+ */
+public class World {
+    // Size of a world unless it is given another
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+
+    // Control bits passed to tick()
+    public static final int THRUST = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 4;
+    public static final int FIRE = 8;
+
+    public static final int ASTEROIDS = 15;
+    public static final int TURN_SPEED = 5;
+    public static final int BULLET_DIAMETER = 10;
+    // Most bullets in flight at once; shots beyond this are dropped
+    public static final int MAX_BULLETS = 256;
+    public static final int POINTS = 10;
+    // Pieces a shot asteroid breaks into, and how far they veer from its heading, in degrees
+    public static final int FRAGMENTS = 2;
+    public static final int MIN_SPREAD = 20, MAX_SPREAD = 60;
+    // How far from the middle the second and later players start
+    public static final int SPAWN_RADIUS = 150;
+
+    // Snapshot format written by save(): the magic number ("ASTW") and version come first
+    public static final int SNAPSHOT_MAGIC = 0x41535457;
+    public static final int SNAPSHOT_VERSION = 3;
+    // Where save() puts the seed, asteroid count, tick count and the rest of the setup, for reading without a World
+    static final int SNAPSHOT_SEED = 8, SNAPSHOT_ASTEROIDS = 16, SNAPSHOT_TICKS = 20;
+    static final int SNAPSHOT_PLAYERS = 29, SNAPSHOT_WIDTH = 33, SNAPSHOT_HEIGHT = 37, SNAPSHOT_BULLETS = 41;
+    // Bytes of header, each ship and per-asteroid extras written by save()
+    private static final int SNAPSHOT_HEADER = 4 + 4 + 8 + 4 + 8 + 1 + 4 + 4 + 4 + 4 + 4;
+    private static final int SNAPSHOT_SHIP = 8 * 8 + 1 + 1 + 4 + 4;
+    private static final int SNAPSHOT_ASTEROID = 4 + 3 * 8;
+
+    // Items per chunk of parallel work; fixed so results don't depend on the thread count
+    private static final int UPDATE_CHUNK = 1024;
+    private static final int QUERY_CHUNK = 256;
+    private static final int TEST_CHUNK = 512;
+    // Most (bullet, asteroid) pairs room is made for up front, per buffer; a crowded world can pass it and grow
+    private static final int RESERVED_PAIRS = 1 << 15;
+
+    private final long seed;
+    private final int asteroidCount;
+    private final int players;
+    private final int width, height;
+    private final ShapeCatalog catalog = ShapeCatalog.DEFAULT;
+    private final AsteroidPool asteroidPool;
+
+    // Broad phase grid over the world, cells a little larger than an asteroid
+    private final SpatialHash broadPhase;
+    private final Ship[] ships;
+    private final boolean[] alive;
+    private final int[] respawn;        // Ticks until each dead ship returns
+    private final int[] scores;
+    private int respawnTicks;           // 0 if dead ships stay dead
+    private int nextAsteroidId;
+    private final int[] singleControls = new int[1];
+    // Physics state of the asteroids (each slot owned by its Asteroid) and the pooled bullets
+    private final EntityStore asteroids;
+    private final EntityStore bullets;
+    private Profiler profiler = Profiler.OFF;
+    private AllocationTracker allocations = AllocationTracker.OFF;
+    private ForkJoinPool pool;          // Null to run every phase on the calling thread
+
+    // Collision candidates from the broad phase, and what the narrow phase made of them
+    private int[] shipPair = new int[32];  // Ship index, asteroid index, ship index, ...
+    private int shipPairs;
+    private int[] pair = new int[64];   // Bullet index, asteroid index, bullet index, ...
+    private int pairs;
+    private boolean[] hit = new boolean[32];  // Result of the exact test for each pair
+    private boolean[] destroyed;
+    private boolean[] spent;
+
+    // Pieces of this tick's split asteroids, added once the collisions are resolved
+    private ShapeTemplate[] fragmentShape = new ShapeTemplate[16];
+    private double[] fragmentX = new double[16], fragmentY = new double[16], fragmentRotation = new double[16];
+    private int fragments;
+
+    // Where asteroids were destroyed this tick, for effects; not part of the game's state
+    private double[] hitX = new double[16], hitY = new double[16], hitRadius = new double[16];
+    private int hits;
+
+    private boolean gameOver;
+    private long ticks;
+
+    // Per chunk state for the parallel broad phase, and this tick's asteroid seed
+    private SpatialHash.Query[] chunkQuery = new SpatialHash.Query[0];
+    private int[][] chunkPair = new int[0][];
+    private int[] chunkPairs = new int[0];
+    private long updateSeed;
+
+    // The chunk tasks, kept so a tick doesn't allocate them
+    private final Parallel.ChunkTask updateChunk = this::updateChunk;
+    private final Parallel.ChunkTask queryChunk = this::queryChunk;
+    private final Parallel.ChunkTask testChunk = this::testChunk;
+
+    /**
+     * Creates a world with the usual number of asteroids.
+     *
+     * @param seed seed for every random choice the game makes
+     */
+    public World(long seed) {
+        this(seed, ASTEROIDS);
+    }
+
+    /**
+     * Creates a world.
+     *
+     * @param seed          seed for every random choice the game makes
+     * @param asteroidCount number of asteroids to start with
+     */
+    public World(long seed, int asteroidCount) {
+        this(seed, asteroidCount, MAX_BULLETS);
+    }
+
+    /**
+     * Creates a world.
+     *
+     * @param seed          seed for every random choice the game makes
+     * @param asteroidCount number of asteroids to start with
+     * @param maxBullets    most bullets that can be in flight at once
+     */
+    public World(long seed, int asteroidCount, int maxBullets) {
+        this(seed, asteroidCount, maxBullets, 1);
+    }
+
+    /**
+     * Creates a world with several players.
+     *
+     * @param seed          seed for every random choice the game makes
+     * @param asteroidCount number of asteroids to start with
+     * @param maxBullets    most bullets that can be in flight at once
+     * @param players       number of ships
+     */
+    public World(long seed, int asteroidCount, int maxBullets, int players) {
+        this(seed, asteroidCount, maxBullets, players, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Creates a world with several players and a size of its own. Things that leave it on
+     * one side come back on the other, so the same seed plays a different game in a world
+     * of another size.
+     *
+     * @param seed          seed for every random choice the game makes
+     * @param asteroidCount number of asteroids to start with
+     * @param maxBullets    most bullets that can be in flight at once
+     * @param players       number of ships
+     * @param width         width of the world
+     * @param height        height of the world
+     */
+    public World(long seed, int asteroidCount, int maxBullets, int players, int width, int height) {
+        this.seed = seed;
+        this.asteroidCount = asteroidCount;
+        this.players = players;
+        this.width = width;
+        this.height = height;
+        this.broadPhase = new SpatialHash(width, height, 64);
+        this.ships = new Ship[players];
+        this.alive = new boolean[players];
+        this.respawn = new int[players];
+        this.scores = new int[players];
+        this.asteroids = new EntityStore(asteroidCount);
+        this.bullets = new EntityStore(maxBullets, false);
+        this.asteroidPool = new AsteroidPool(catalog, width, height);
+        reset();
+    }
+
+    /**
+     * Starts a fresh game from the original seed.
+     */
+    public void reset() {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = asteroids.size() - 1; i >= 0; i--) {
+            asteroidPool.release(asteroids.owner(i));
+        }
+        asteroids.clear();
+        bullets.clear();
+        Arrays.fill(scores, 0);
+        gameOver = false;
+        ticks = 0;
+        nextAsteroidId = 0;
+
+        //Making Ships, the first in the middle and the rest in a ring around it
+        for (int p = 0; p < players; p++) {
+            ships[p] = new Ship(new Point2D.Double(spawnX(p), spawnY(p)), 0);
+            ships[p].setWorldSize(width, height);
+            alive[p] = true;
+            respawn[p] = 0;
+        }
+
+        //Making asteroids, each sharing one of the catalog's large outlines
+        int[] large = new int[catalog.getVariants()];
+        for (int i = 0; i < asteroidCount; i++) {
+            int variant = random.nextInt(catalog.getVariants());
+            ShapeTemplate shape = catalog.get(ShapeCatalog.Size.LARGE, variant);
+            int ranx = random.nextInt(width);
+            int rany = random.nextInt(height);
+
+            Asteroid asteroid = asteroidPool.take(shape, ranx, rany, random.nextDouble(360));
+            int slot = asteroids.add(ranx, rany, asteroid.getRotation(), asteroid.getBoundingRadius(), asteroid);
+            asteroids.tag[slot] = nextAsteroidId++;
+            large[variant]++;
+        }
+
+        //Pieces keep their parent's outline, so a large asteroid is at most FRAGMENTS of the next size, and so on
+        int pieces = 1;
+        for (ShapeCatalog.Size size = ShapeCatalog.Size.MEDIUM; size != null; size = size.smaller()) {
+            pieces *= FRAGMENTS;
+            for (int v = 0; v < large.length; v++) {
+                asteroidPool.reserve(catalog.get(size, v), large[v] * pieces);
+            }
+        }
+        int most = Math.max(1, asteroidCount * pieces);
+        destroyed = new boolean[most];
+        spent = new boolean[bullets.capacity()];
+        if (fragmentShape.length < most) {
+            fragmentShape = new ShapeTemplate[most];
+            fragmentX = new double[most];
+            fragmentY = new double[most];
+            fragmentRotation = new double[most];
+        }
+        if (hitX.length < most) {
+            hitX = new double[most];
+            hitY = new double[most];
+            hitRadius = new double[most];
+        }
+
+        //Room for every piece in the store and the grid, and for every bullet to meet every piece
+        asteroids.reserve(most);
+        double largest = 0;
+        for (int v = 0; v < large.length; v++) {
+            largest = Math.max(largest, catalog.get(ShapeCatalog.Size.LARGE, v).getBoundingRadius());
+        }
+        broadPhase.reserve(most, 2 * largest);
+        if (shipPair.length < 2 * players * most) {
+            shipPair = new int[2 * players * most];
+        }
+        int chunks = Parallel.chunks(bullets.capacity(), QUERY_CHUNK);
+        addChunks(chunks, (int) Math.min((long) QUERY_CHUNK * most, RESERVED_PAIRS));
+        int reserved = (int) Math.min((long) bullets.capacity() * most, (long) chunks * RESERVED_PAIRS);
+        if (hit.length < reserved) {
+            pair = new int[2 * reserved];
+            hit = new boolean[reserved];
+        }
+    }
+
+    /**
+     * Advances the game by one fixed step, steering the first ship. Does nothing once
+     * the game is over.
+     *
+     * @param controls the control bits (THRUST, LEFT, RIGHT, FIRE) held this tick
+     */
+    public void tick(int controls) {
+        singleControls[0] = controls;
+        tick(singleControls);
+    }
+
+    /**
+     * Advances the game by one fixed step. Does nothing once the game is over.
+     *
+     * @param controls the control bits (THRUST, LEFT, RIGHT, FIRE) each player holds this tick
+     */
+    public void tick(int[] controls) {
+        //Its game over when every ship has hit an asteroid for good
+        if (gameOver) {
+            return;
+        }
+        ticks++;
+        hits = 0;
+        long begin = profiler.start();
+        long t = begin;
+        long allocatedBefore = allocations.mark();
+        long a = allocatedBefore;
+
+        //updates ships to change position depending on how they are being interacted with.
+        for (int p = 0; p < players; p++) {
+            if (alive[p]) {
+                steer(ships[p], controls[p]);
+            } else if (respawn[p] > 0 && --respawn[p] == 0) {
+                ships[p].restore(spawnX(p), spawnY(p), 0, spawnX(p), spawnY(p), 0);
+                ships[p].getVelocity().set(0, 0);
+                alive[p] = true;
+            }
+        }
+
+        //Bullet maker and asteroid movement, spread over the pool
+        bullets.savePrevious();
+        updateSeed = mix(seed, ticks);
+        Parallel.forEachChunk(pool, Math.max(bullets.size(), asteroids.size()), UPDATE_CHUNK, updateChunk);
+        Bullet.cull(bullets, width, height);
+        t = profiler.stop(Profiler.Phase.UPDATE, t);
+        a = allocations.record(Profiler.Phase.UPDATE, a);
+
+        findCandidates();
+        t = profiler.stop(Profiler.Phase.BROAD_PHASE, t);
+        a = allocations.record(Profiler.Phase.BROAD_PHASE, a);
+
+        resolveCollisions();
+        profiler.stop(Profiler.Phase.NARROW_PHASE, t);
+        allocations.record(Profiler.Phase.NARROW_PHASE, a);
+
+        //checks if a bullet is fired
+        for (int p = 0; p < players; p++) {
+            if (alive[p] && (controls[p] & FIRE) != 0) {
+                Point2D.Double nose = ships[p].getPoints()[2];
+                int i = Bullet.fire(bullets, nose.x, nose.y, ships[p].rotation, BULLET_DIAMETER);
+                if (i >= 0) {
+                    bullets.tag[i] = p;
+                }
+            }
+        }
+        profiler.stop(Profiler.Phase.TICK, begin);
+        allocations.record(Profiler.Phase.TICK, allocatedBefore);
+    }
+
+    /**
+     * Moves and turns a ship one tick according to its controls, the same way for the
+     * authoritative world and for a client predicting its own ship.
+     *
+     * @param ship     the ship to move
+     * @param controls the control bits held this tick
+     */
+    public static void steer(Ship ship, int controls) {
+        //updates ship to change position depending on how the ship is being interacted with.
+        ship.thrust((controls & THRUST) != 0);
+        ship.savePrevious();
+        ship.update();
+
+        //Changes the ships rotation
+        if ((controls & LEFT) != 0) {
+            ship.rotate(-TURN_SPEED);
+        }
+        if ((controls & RIGHT) != 0) {
+            ship.rotate(TURN_SPEED);
+        }
+    }
+
+    /*
+     * Update: moves one chunk of the bullets and one chunk of the asteroids.
+     */
+    private void updateChunk(int chunk, int from, int to) {
+        Bullet.update(bullets, from, Math.min(to, bullets.size()));
+        Asteroid.update(asteroids, updateSeed, width, height, from, Math.min(to, asteroids.size()));
+    }
+
+    /*
+     * Broad phase: files every asteroid in the grid, then lists the asteroids near each
+     * ship still in play and the (bullet, asteroid) pairs that share a cell. Bullets are queried in
+     * chunks, each into its own buffer; the buffers are joined so that bullets are
+     * listed from last to first.
+     */
+    private void findCandidates() {
+        broadPhase.clear();
+        for (int i = 0; i < asteroids.size(); i++) {
+            Rectangle2D.Double box = asteroids.<Asteroid>owner(i).getBounds();
+            broadPhase.insert(i, box.x, box.y, box.x + box.width, box.y + box.height);
+        }
+
+        shipPairs = 0;
+        for (int p = 0; p < players; p++) {
+            if (!alive[p]) {
+                continue;
+            }
+            Rectangle2D.Double shipBox = ships[p].getBounds();
+            int candidates = broadPhase.query(shipBox.x, shipBox.y, shipBox.x + shipBox.width, shipBox.y + shipBox.height);
+            if (shipPair.length < 2 * (shipPairs + candidates)) {
+                shipPair = Arrays.copyOf(shipPair, Math.max(2 * (shipPairs + candidates), shipPair.length * 2));
+            }
+            for (int c = 0; c < candidates; c++) {
+                shipPair[2 * shipPairs] = p;
+                shipPair[2 * shipPairs + 1] = broadPhase.results()[c];
+                shipPairs++;
+            }
+        }
+
+        int chunks = Parallel.chunks(bullets.size(), QUERY_CHUNK);
+        addChunks(chunks, 32);
+        Parallel.forEachChunk(pool, bullets.size(), QUERY_CHUNK, queryChunk);
+
+        pairs = 0;
+        for (int c = chunks - 1; c >= 0; c--) {
+            if (pair.length < 2 * (pairs + chunkPairs[c])) {
+                pair = Arrays.copyOf(pair, Math.max(2 * (pairs + chunkPairs[c]), pair.length * 2));
+            }
+            System.arraycopy(chunkPair[c], 0, pair, 2 * pairs, 2 * chunkPairs[c]);
+            pairs += chunkPairs[c];
+        }
+    }
+
+    /*
+     * Makes sure the broad phase has state for the given number of chunks, giving any new
+     * chunk a query and room for the given number of pairs.
+     */
+    private void addChunks(int chunks, int pairs) {
+        if (chunkQuery.length < chunks) {
+            int old = chunkQuery.length;
+            chunkQuery = Arrays.copyOf(chunkQuery, chunks);
+            chunkPair = Arrays.copyOf(chunkPair, chunks);
+            chunkPairs = Arrays.copyOf(chunkPairs, chunks);
+            for (int c = old; c < chunks; c++) {
+                chunkQuery[c] = new SpatialHash.Query();
+                broadPhase.reserve(chunkQuery[c]);
+                chunkPair[c] = new int[2 * pairs];
+            }
+        }
+    }
+
+    /*
+     * Broad phase: lists the pairs for one chunk of bullets, last bullet first.
+     */
+    private void queryChunk(int chunk, int from, int to) {
+        SpatialHash.Query q = chunkQuery[chunk];
+        int[] found = chunkPair[chunk];
+        int n = 0;
+        for (int i = to - 1; i >= from; i--) {
+            int candidates = broadPhase.query(q, bullets.x[i], bullets.y[i], bullets.x[i], bullets.y[i]);
+            if (found.length < 2 * (n + candidates)) {
+                found = chunkPair[chunk] = Arrays.copyOf(found, Math.max(2 * (n + candidates), found.length * 2));
+            }
+            for (int c = 0; c < candidates; c++) {
+                found[2 * n] = i;
+                found[2 * n + 1] = q.results()[c];
+                n++;
+            }
+        }
+        chunkPairs[chunk] = n;
+    }
+
+    /*
+     * Narrow phase: runs the exact test on one chunk of the pairs.
+     */
+    private void testChunk(int chunk, int from, int to) {
+        for (int p = from; p < to; p++) {
+            int i = pair[2 * p], j = pair[2 * p + 1];
+            hit[p] = asteroids.<Asteroid>owner(j).contains(bullets.x[i], bullets.y[i]);
+        }
+    }
+
+    /*
+     * Narrow phase: runs the exact test on each candidate, in parallel, then goes through
+     * the hits in order. A bullet destroys at most one asteroid; both are removed once
+     * every pair has been checked.
+     */
+    private void resolveCollisions() {
+        //Checks for intersection between ships and the asteroids near them
+        for (int c = 0; c < shipPairs; c++) {
+            int p = shipPair[2 * c];
+            if (alive[p] && asteroids.<Asteroid>owner(shipPair[2 * c + 1]).intersects(ships[p])) {
+                alive[p] = false;
+                respawn[p] = respawnTicks;
+            }
+        }
+        gameOver = respawnTicks == 0;
+        for (int p = 0; p < players && gameOver; p++) {
+            gameOver = !alive[p];
+        }
+
+        //Checks for collisions between bullets and the asteroids near them
+        if (destroyed.length < asteroids.size()) {
+            destroyed = new boolean[asteroids.size()];
+        }
+        if (spent.length < bullets.size()) {
+            spent = new boolean[bullets.capacity()];
+        }
+        if (hit.length < pairs) {
+            hit = new boolean[pair.length / 2];
+        }
+        Parallel.forEachChunk(pool, pairs, TEST_CHUNK, testChunk);
+        for (int p = 0; p < pairs; p++) {
+            int i = pair[2 * p], j = pair[2 * p + 1];
+            if (hit[p] && !spent[i] && !destroyed[j]) {
+                spent[i] = true;
+                destroyed[j] = true;
+                scores[bullets.tag[i]] += POINTS;
+                Asteroid asteroid = asteroids.owner(j);
+                addHit(asteroid.getPivotX(), asteroid.getPivotY(), asteroid.getBoundingRadius());
+                split(j);
+            }
+        }
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            if (spent[i]) {
+                spent[i] = false;
+                bullets.remove(i);
+            }
+        }
+        for (int j = asteroids.size() - 1; j >= 0; j--) {
+            if (destroyed[j]) {
+                destroyed[j] = false;
+                asteroidPool.release(asteroids.owner(j));
+                asteroids.remove(j);
+            }
+        }
+        for (int f = 0; f < fragments; f++) {
+            Asteroid asteroid = asteroidPool.take(fragmentShape[f], fragmentX[f], fragmentY[f], fragmentRotation[f]);
+            int slot = asteroids.add(fragmentX[f], fragmentY[f], fragmentRotation[f], asteroid.getBoundingRadius(), asteroid);
+            asteroids.tag[slot] = nextAsteroidId++;
+            fragmentShape[f] = null;
+        }
+        fragments = 0;
+    }
+
+    /*
+     * Queues the pieces of a shot asteroid: FRAGMENTS of the next size down with the
+     * same outline, centered where it was and veering off either side of its heading.
+     * The angle comes from the tick's seed and the asteroid's id, so it doesn't depend
+     * on the order the hits were found in.
+     */
+    private void split(int j) {
+        Asteroid parent = asteroids.owner(j);
+        ShapeCatalog.Size size = catalog.getSize(parent.getTemplate()).smaller();
+        if (size == null) {
+            return;
+        }
+        ShapeTemplate shape = catalog.get(size, catalog.getVariant(parent.getTemplate()));
+        long random = mix(~updateSeed, asteroids.tag[j]);
+        double spread = MIN_SPREAD + (random >>> 11) * 0x1.0p-53 * (MAX_SPREAD - MIN_SPREAD);
+        if (fragmentShape.length < fragments + FRAGMENTS) {
+            int length = Math.max(fragments + FRAGMENTS, fragmentShape.length * 2);
+            fragmentShape = Arrays.copyOf(fragmentShape, length);
+            fragmentX = Arrays.copyOf(fragmentX, length);
+            fragmentY = Arrays.copyOf(fragmentY, length);
+            fragmentRotation = Arrays.copyOf(fragmentRotation, length);
+        }
+        for (int k = 0; k < FRAGMENTS; k++) {
+            //Fans the pieces out evenly from -spread to +spread
+            double turn = FRAGMENTS == 1 ? 0 : spread * (2.0 * k / (FRAGMENTS - 1) - 1);
+            fragmentShape[fragments] = shape;
+            fragmentX[fragments] = parent.getPivotX() - shape.getCenterX() / 2;
+            fragmentY[fragments] = parent.getPivotY() - shape.getCenterY() / 2;
+            fragmentRotation[fragments] = ((parent.getRotation() + turn) % 360 + 360) % 360;
+            fragments++;
+        }
+    }
+
+    /**
+     * Notes that an asteroid was destroyed this tick. tick() notes its own hits; a client
+     * world, which is never ticked, notes the asteroids that left its snapshots.
+     *
+     * @param x      x coordinate of the asteroid's center
+     * @param y      y coordinate of the asteroid's center
+     * @param radius the asteroid's bounding radius
+     */
+    public void addHit(double x, double y, double radius) {
+        if (hits == hitX.length) {
+            hitX = Arrays.copyOf(hitX, hits * 2);
+            hitY = Arrays.copyOf(hitY, hits * 2);
+            hitRadius = Arrays.copyOf(hitRadius, hits * 2);
+        }
+        hitX[hits] = x;
+        hitY[hits] = y;
+        hitRadius[hits] = radius;
+        hits++;
+    }
+
+    /**
+     * Forgets the hits noted so far; tick() does this as it starts.
+     */
+    public void clearHits() {
+        hits = 0;
+    }
+
+    /**
+     * @return number of asteroids destroyed this tick
+     */
+    public int getHits() { return hits; }
+
+    /**
+     * @return x coordinate of the center of the i-th asteroid destroyed this tick
+     */
+    public double getHitX(int i) { return hitX[i]; }
+
+    /**
+     * @return y coordinate of the center of the i-th asteroid destroyed this tick
+     */
+    public double getHitY(int i) { return hitY[i]; }
+
+    /**
+     * @return bounding radius of the i-th asteroid destroyed this tick
+     */
+    public double getHitRadius(int i) { return hitRadius[i]; }
+
+    /**
+     * Brings ships that hit an asteroid back after a while instead of ending the game.
+     *
+     * @param ticks ticks a ship stays out, or 0 for out for good
+     */
+    public void setRespawnTicks(int ticks) {
+        this.respawnTicks = ticks;
+    }
+
+    /**
+     * @return x coordinate a player's ship starts at
+     */
+    public double spawnX(int player) {
+        return width / 2.0 + (player == 0 ? 0 : SPAWN_RADIUS * Math.cos(2 * Math.PI * player / players));
+    }
+
+    /**
+     * @return y coordinate a player's ship starts at
+     */
+    public double spawnY(int player) {
+        return height / 2.0 + (player == 0 ? 0 : SPAWN_RADIUS * Math.sin(2 * Math.PI * player / players));
+    }
+
+    /**
+     * Spreads the work of each tick over a number of threads. The game played is the
+     * same whatever the number.
+     *
+     * @param threads threads to use; 1 or less runs everything on the calling thread
+     */
+    public void setParallelism(int threads) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Times every tick from now on, phase by phase.
+     *
+     * @param profiler where to record the timings, or Profiler.OFF
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Counts the bytes every tick allocates from now on, phase by phase.
+     *
+     * @param allocations where to record the counts, or AllocationTracker.OFF
+     */
+    public void setAllocationTracker(AllocationTracker allocations) {
+        this.allocations = allocations;
+    }
+
+    /**
+     * @return how many bytes save() needs for the world as it is now
+     */
+    public int snapshotSize() {
+        return SNAPSHOT_HEADER + players * SNAPSHOT_SHIP + 4 + asteroids.size() * (EntityStore.RECORD + SNAPSHOT_ASTEROID)
+                + 4 + bullets.size() * EntityStore.RECORD;
+    }
+
+    /**
+     * Writes the complete state of the game to a buffer, so it can be picked up again
+     * later with restore(). Nothing is allocated, so this is cheap enough to do every tick.
+     *
+     * @param out buffer with at least snapshotSize() bytes remaining
+     */
+    public void save(ByteBuffer out) {
+        out.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(seed).putInt(asteroidCount);
+        out.putLong(ticks).put((byte) (gameOver ? 1 : 0)).putInt(players)
+                .putInt(width).putInt(height).putInt(bullets.capacity()).putInt(nextAsteroidId);
+
+        for (int p = 0; p < players; p++) {
+            Ship ship = ships[p];
+            out.putDouble(ship.getX()).putDouble(ship.getY()).putDouble(ship.getRotation())
+                    .putDouble(ship.getPreviousX()).putDouble(ship.getPreviousY()).putDouble(ship.getPreviousRotation())
+                    .putDouble(ship.getVelocity().x).putDouble(ship.getVelocity().y)
+                    .put((byte) (ship.isThrusting() ? 1 : 0)).put((byte) (alive[p] ? 1 : 0))
+                    .putInt(respawn[p]).putInt(scores[p]);
+        }
+
+        asteroids.write(out);
+        for (int i = 0; i < asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.owner(i);
+            out.putInt(catalog.id(asteroid.getTemplate())).putDouble(asteroid.getRotation())
+                    .putDouble(asteroid.getPreviousX()).putDouble(asteroid.getPreviousY());
+        }
+        bullets.write(out);
+    }
+
+    /**
+     * Puts the game back in a state written by save(). Asteroid objects come from the
+     * pool, so a slot that keeps its outline keeps its object.
+     *
+     * @param in buffer positioned where save() started
+     * @throws IllegalArgumentException if the snapshot isn't one, is from another version,
+     *                                  or was saved by a world with a different seed or setup
+     */
+    public void restore(ByteBuffer in) {
+        if (in.getInt() != SNAPSHOT_MAGIC) {
+            throw new IllegalArgumentException("Not a world snapshot");
+        }
+        int version = in.getInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        long savedSeed = in.getLong();
+        int savedCount = in.getInt();
+        if (savedSeed != seed || savedCount != asteroidCount) {
+            throw new IllegalArgumentException("Snapshot is of a world with seed " + savedSeed
+                    + " and " + savedCount + " asteroids");
+        }
+        long savedTicks = in.getLong();
+        boolean savedGameOver = in.get() != 0;
+        int savedPlayers = in.getInt();
+        if (savedPlayers != players) {
+            throw new IllegalArgumentException("Snapshot is of a world with " + savedPlayers + " players");
+        }
+        int savedWidth = in.getInt(), savedHeight = in.getInt(), savedBullets = in.getInt();
+        if (savedWidth != width || savedHeight != height || savedBullets != bullets.capacity()) {
+            throw new IllegalArgumentException("Snapshot is of a world of " + savedWidth + "x" + savedHeight
+                    + " with room for " + savedBullets + " bullets");
+        }
+        ticks = savedTicks;
+        gameOver = savedGameOver;
+        nextAsteroidId = in.getInt();
+
+        for (int p = 0; p < players; p++) {
+            Ship ship = ships[p];
+            ship.restore(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+            ship.getVelocity().set(in.getDouble(), in.getDouble());
+            ship.thrust(in.get() != 0);
+            alive[p] = in.get() != 0;
+            respawn[p] = in.getInt();
+            scores[p] = in.getInt();
+        }
+
+        //Every asteroid goes back to the pool first, last first so that a slot keeping its outline gets its own object back
+        for (int i = asteroids.size() - 1; i >= 0; i--) {
+            asteroidPool.release(asteroids.owner(i));
+        }
+        asteroids.read(in);
+        for (int i = 0; i < asteroids.size(); i++) {
+            ShapeTemplate template = catalog.get(in.getInt());
+            double rotation = in.getDouble();
+            double previousX = in.getDouble(), previousY = in.getDouble();
+            Asteroid asteroid = asteroidPool.take(template, asteroids.x[i], asteroids.y[i], rotation);
+            asteroids.setOwner(i, asteroid);
+            asteroid.restore(asteroids.x[i], asteroids.y[i], rotation, previousX, previousY, rotation);
+        }
+        bullets.read(in);
+    }
+
+    /**
+     * Fingerprints the state of the game, so two runs can cheaply be checked for
+     * having ended up in exactly the same place.
+     *
+     * @return hash of the scores, ships, asteroids and bullets
+     */
+    public long hash() {
+        long h = 1125899906842597L;
+        h = 31 * h + ticks;
+        h = 31 * h + (gameOver ? 1 : 0);
+        for (int p = 0; p < players; p++) {
+            h = 31 * h + scores[p];
+            h = 31 * h + (alive[p] ? 1 : 0);
+            h = 31 * h + Double.doubleToLongBits(ships[p].position.x);
+            h = 31 * h + Double.doubleToLongBits(ships[p].position.y);
+            h = 31 * h + Double.doubleToLongBits(ships[p].rotation);
+        }
+        for (EntityStore store : new EntityStore[]{asteroids, bullets}) {
+            h = 31 * h + store.size();
+            for (int i = 0; i < store.size(); i++) {
+                h = 31 * h + Double.doubleToLongBits(store.x[i]);
+                h = 31 * h + Double.doubleToLongBits(store.y[i]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return the first player's ship
+     */
+    public Ship getShip() { return ships[0]; }
+
+    public Ship getShip(int player) { return ships[player]; }
+
+    /**
+     * @return true if the player's ship is in play rather than waiting to respawn
+     */
+    public boolean isAlive(int player) { return alive[player]; }
+
+    /**
+     * Puts a ship in or out of play, e.g. from a server's snapshot.
+     */
+    public void setAlive(int player, boolean alive) { this.alive[player] = alive; }
+
+    public int getPlayers() { return players; }
+
+    public EntityStore getAsteroids() { return asteroids; }
+
+    public EntityStore getBullets() { return bullets; }
+
+    /**
+     * @return the points scored by every player together
+     */
+    public int getScore() {
+        int total = 0;
+        for (int score : scores) {
+            total += score;
+        }
+        return total;
+    }
+
+    public int getScore(int player) { return scores[player]; }
+
+    /**
+     * Sets a player's score, e.g. from a server's snapshot.
+     */
+    public void setScore(int player, int score) { scores[player] = score; }
+
+    public boolean isGameOver() { return gameOver; }
+
+    public long getTicks() { return ticks; }
+
+    public long getSeed() { return seed; }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    /*
+     * Mixes a seed with a counter using the SplitMix64 finalizer, giving a well spread
+     * random value for every (seed, n) pair without any state to keep.
+     */
+    static long mix(long seed, long n) {
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}